@@ -0,0 +1,129 @@
+package dsfinal.demo.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import dsfinal.demo.logic.HtmlExtractor;
+import dsfinal.demo.model.WebPage;
+
+/**
+ * Benchmark 用的本機語料：src/bench/resources/corpus 下預先存好的多語言網頁，
+ * 加上固定的翻譯結果，取代 Google、爬蟲與 MyMemory 的網路呼叫。
+ */
+public final class Corpus {
+
+    public static final class Entry {
+        public final String lang;
+        public final String url;
+        public final String title;
+        public final String query;
+        public final String html;
+        public final Document doc;
+        public final String content;
+        // 串流擷取出的同網站連結 (與爬取時相同)
+        public final List<HtmlExtractor.Link> links;
+
+        Entry(String lang, String url, String title, String query, String html) {
+            this.lang = lang;
+            this.url = url;
+            this.title = title;
+            this.query = query;
+            this.html = html;
+            this.doc = Jsoup.parse(html, url);
+            this.content = doc.body().text();
+            this.links = HtmlExtractor.extract(html, url).links;
+        }
+
+        /** 與 GoogleSearchService 爬取後相同的 WebPage */
+        public WebPage newPage() {
+            WebPage page = new WebPage(url, title);
+            page.setContent(content);
+            return page;
+        }
+    }
+
+    // MyMemory 的替身：查詢關鍵字的固定翻譯
+    private static final Map<String, Set<String>> STUB_TRANSLATIONS = new HashMap<>();
+    static {
+        stub("雪莉", "shelly", "シェリー", "쉘리");
+        stub("攻略", "guide", "攻略", "공략");
+        stub("tier", "排名", "ティア", "티어");
+        stub("list", "列表", "リスト", "목록");
+        stub("シェリー", "shelly", "雪莉", "쉘리");
+        stub("評価", "rating", "評價", "평가");
+        stub("쉘리", "shelly", "雪莉", "シェリー");
+        stub("공략", "guide", "攻略", "攻略");
+        stub("شيلي", "shelly", "雪莉", "シェリー");
+    }
+
+    private static final List<Entry> ENTRIES = load();
+
+    private Corpus() {}
+
+    public static List<Entry> entries() {
+        return ENTRIES;
+    }
+
+    public static Entry byLang(String lang) {
+        for (Entry e : ENTRIES) if (e.lang.equals(lang)) return e;
+        throw new IllegalArgumentException("語料中沒有語言: " + lang);
+    }
+
+    public static Map<String, Set<String>> translations() {
+        return STUB_TRANSLATIONS;
+    }
+
+    /** 模擬一次搜尋結果：指定語言的網頁排第一，其餘依序在後 */
+    public static List<WebPage> resultsFor(String lang) {
+        List<WebPage> pages = new ArrayList<>();
+        pages.add(byLang(lang).newPage());
+        for (Entry e : ENTRIES) {
+            if (!e.lang.equals(lang)) pages.add(e.newPage());
+        }
+        return pages;
+    }
+
+    private static void stub(String keyword, String... variants) {
+        Set<String> set = new LinkedHashSet<>();
+        set.add(keyword);
+        Collections.addAll(set, variants);
+        STUB_TRANSLATIONS.put(keyword, set);
+    }
+
+    private static List<Entry> load() {
+        List<Entry> entries = new ArrayList<>();
+        for (String line : readLines("corpus/index.tsv")) {
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] f = line.split("\t");
+            String html = String.join("\n", readLines("corpus/" + f[0]));
+            entries.add(new Entry(f[1], f[2], f[3], f[4], html));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private static List<String> readLines(String resource) {
+        InputStream in = Corpus.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) throw new IllegalStateException("找不到語料: " + resource);
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) lines.add(line);
+        } catch (IOException e) {
+            throw new IllegalStateException("讀取語料失敗: " + resource, e);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,50 @@
+package dsfinal.demo.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dsfinal.demo.logic.HtmlExtractor;
+
+/**
+ * 爬取後的內容擷取：Jsoup DOM 解析 (crawl.mode=dom) 與串流擷取 (crawl.mode=stream)。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HtmlExtractBenchmark {
+
+    @Param({"zh-TW", "en", "ja", "ko", "ar"})
+    public String lang;
+
+    private Corpus.Entry entry;
+
+    @Setup
+    public void setup() {
+        entry = Corpus.byLang(lang);
+    }
+
+    @Benchmark
+    public HtmlExtractor.Page dom() {
+        return HtmlExtractor.fromDocument(Jsoup.parse(entry.html, entry.url), entry.html.length(), false);
+    }
+
+    @Benchmark
+    public HtmlExtractor.Page stream() {
+        return HtmlExtractor.extract(entry.html, entry.url);
+    }
+}
@@ -0,0 +1,58 @@
+package dsfinal.demo.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dsfinal.demo.logic.SemanticAnalyzer;
+import dsfinal.demo.model.WebPage;
+import dsfinal.demo.service.AiSummaryService;
+
+/**
+ * 搜尋結果之後的兩個階段：AI 摘要與相關關鍵字。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"zh-TW", "en", "ja", "ko", "ar"})
+    public String lang;
+
+    private String query;
+    private List<WebPage> results;
+    private AiSummaryService summaryService;
+    private SemanticAnalyzer semanticAnalyzer;
+
+    @Setup
+    public void setup() {
+        query = Corpus.byLang(lang).query;
+        results = Corpus.resultsFor(lang);
+        summaryService = new AiSummaryService();
+        semanticAnalyzer = new SemanticAnalyzer();
+    }
+
+    @Benchmark
+    public String generateSummary() {
+        return summaryService.generateSummary(query, results);
+    }
+
+    @Benchmark
+    public List<String> deriveRelatedKeywords() {
+        return semanticAnalyzer.deriveRelatedKeywords(results, query);
+    }
+}
@@ -0,0 +1,78 @@
+package dsfinal.demo.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dsfinal.demo.bench.Corpus;
+import dsfinal.demo.model.WebPage;
+
+/**
+ * Ranker 評分與子網頁挖掘。放在 logic package 以便直接量測 processSubPages。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankerBenchmark {
+
+    @Param({"zh-TW", "en", "ja", "ko", "ar"})
+    public String lang;
+
+    private Corpus.Entry entry;
+    private Ranker ranker;
+    private PreparedQuery prepared;
+    private File cacheFile;
+
+    @Setup
+    public void setup() throws IOException {
+        entry = Corpus.byLang(lang);
+        // 翻譯都由 Corpus 提供，不連網路，也不碰正式的翻譯快取檔
+        cacheFile = File.createTempFile("translation_cache", ".tsv");
+        Translator offline = (text, targetLang) -> CompletableFuture.completedFuture(null);
+        ranker = new Ranker(offline, cacheFile.getPath());
+        prepared = ranker.prepareQuery(entry.query, Corpus.translations());
+    }
+
+    @TearDown
+    public void tearDown() {
+        cacheFile.delete();
+    }
+
+    @Benchmark
+    public double calculatePageScore() {
+        return ranker.calculatePageScore(entry.newPage(), prepared, null);
+    }
+
+    @Benchmark
+    public double calculatePageScoreWithSubPages() {
+        return ranker.calculatePageScore(entry.newPage(), prepared, entry.links);
+    }
+
+    @Benchmark
+    public double processSubPages() {
+        WebPage page = new WebPage(entry.url, entry.title);
+        return ranker.processSubPages(page, entry.links, prepared);
+    }
+
+    @Benchmark
+    public PreparedQuery prepareQuery() {
+        return ranker.prepareQuery(entry.query, Corpus.translations());
+    }
+}
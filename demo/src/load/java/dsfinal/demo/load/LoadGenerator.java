@@ -0,0 +1,157 @@
+package dsfinal.demo.load;
+
+import java.io.File;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import dsfinal.demo.DemoApplication;
+
+/**
+ * 壓力測試：以固定數量的模擬使用者持續送出請求，統計吞吐量、延遲百分位數與錯誤率。
+ *
+ * 執行方式 (參數皆可省略)：
+ *   mvn -Pload test-compile exec:exec -Dload.args="--scenario=mixed --users=50 --duration=30"
+ *
+ * --start=true 時在同一個 JVM 以 replay profile 啟動應用程式 (不需要網路)；
+ * 否則對 --base 指定的、已啟動的應用程式測試。結果同時寫到 --out 指定的 JSON 檔。
+ */
+public class LoadGenerator {
+
+    public static class Options {
+        String baseUrl = "http://localhost:8080";
+        boolean start = true;
+        int port = 18080;
+        String replayDir = "replay";
+        VirtualUser.Scenario scenario = VirtualUser.Scenario.MIXED;
+        int users = 50;
+        int durationSec = 30;
+        int warmupSec = 5;
+        // mixed 情境中搜尋所占的比例
+        double searchRatio = 0.8;
+        // 加上隨機字尾 (結果快取 miss) 的搜尋比例
+        double uniqueRatio = 0.3;
+        long thinkMs = 0;
+        long seed = 42;
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        String out = "target/load-result.json";
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = parse(args);
+
+        ConfigurableApplicationContext app = null;
+        List<String> queries = ReplaySeed.seedIfEmpty(new File(options.replayDir), 4);
+        if (options.start) {
+            app = SpringApplication.run(DemoApplication.class,
+                    "--spring.profiles.active=replay",
+                    "--server.port=" + options.port,
+                    "--replay.dir=" + options.replayDir);
+            options.baseUrl = "http://localhost:" + options.port;
+        }
+
+        try {
+            Map<String, Object> result = run(options, queries);
+            ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            File out = new File(options.out);
+            if (out.getParentFile() != null) out.getParentFile().mkdirs();
+            mapper.writeValue(out, result);
+            System.out.println(">>> 結果已寫入 " + out.getAbsolutePath());
+        } finally {
+            if (app != null) app.close();
+        }
+    }
+
+    static Map<String, Object> run(Options options, List<String> queries) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        LoadStats stats = new LoadStats();
+
+        System.out.println(">>> 壓力測試 " + options.scenario.name().toLowerCase(Locale.ROOT) + "：" + options.users
+                + " 個使用者，暖機 " + options.warmupSec + " 秒，測試 " + options.durationSec + " 秒，目標 " + options.baseUrl);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < options.users; i++) {
+            Thread t = new Thread(new VirtualUser(i, options.scenario, options, queries, client, stats), "load-user-" + i);
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        }
+
+        Thread.sleep(options.warmupSec * 1000L);
+        stats.setRecording(true);
+        long start = System.nanoTime();
+        Thread.sleep(options.durationSec * 1000L);
+        stats.stop();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // 等進行中的請求完成再結束，避免關閉應用程式時中斷處理到一半的請求
+        long deadline = System.currentTimeMillis() + 30_000;
+        for (Thread t : threads) t.join(Math.max(1, deadline - System.currentTimeMillis()));
+        for (Thread t : threads) t.interrupt();
+
+        Map<String, Map<String, Object>> summary = stats.summary(seconds);
+        print(summary);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("scenario", options.scenario.name().toLowerCase(Locale.ROOT));
+        config.put("users", options.users);
+        config.put("duration_sec", options.durationSec);
+        config.put("warmup_sec", options.warmupSec);
+        config.put("search_ratio", options.searchRatio);
+        config.put("unique_ratio", options.uniqueRatio);
+        config.put("think_ms", options.thinkMs);
+        config.put("base_url", options.baseUrl);
+        result.put("config", config);
+        result.put("endpoints", summary);
+        return result;
+    }
+
+    private static void print(Map<String, Map<String, Object>> summary) {
+        System.out.println(String.format("%-16s %9s %9s %8s %8s %10s %10s %10s %10s",
+                "endpoint", "count", "req/s", "errors", "err%", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)"));
+        summary.forEach((name, row) -> System.out.println(String.format("%-16s %9s %9s %8s %8s %10s %10s %10s %10s",
+                name, row.get("count"), row.get("rps"), row.get("errors"), row.get("error_rate"),
+                row.getOrDefault("p50_ms", "-"), row.getOrDefault("p90_ms", "-"),
+                row.getOrDefault("p99_ms", "-"), row.getOrDefault("max_ms", "-"))));
+    }
+
+    // 參數格式：--name=value
+    static Options parse(String[] args) {
+        Options o = new Options();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) throw new IllegalArgumentException("參數格式應為 --name=value: " + arg);
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (name) {
+                case "base": o.baseUrl = value; o.start = false; break;
+                case "start": o.start = Boolean.parseBoolean(value); break;
+                case "port": o.port = Integer.parseInt(value); break;
+                case "replay-dir": o.replayDir = value; break;
+                case "scenario": o.scenario = VirtualUser.Scenario.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                case "users": o.users = Integer.parseInt(value); break;
+                case "duration": o.durationSec = Integer.parseInt(value); break;
+                case "warmup": o.warmupSec = Integer.parseInt(value); break;
+                case "search-ratio": o.searchRatio = Double.parseDouble(value); break;
+                case "unique-ratio": o.uniqueRatio = Double.parseDouble(value); break;
+                case "think": o.thinkMs = Long.parseLong(value); break;
+                case "seed": o.seed = Long.parseLong(value); break;
+                case "out": o.out = value; break;
+                default: throw new IllegalArgumentException("未知的參數: " + arg);
+            }
+        }
+        return o;
+    }
+}
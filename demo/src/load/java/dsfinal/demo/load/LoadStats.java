@@ -0,0 +1,78 @@
+package dsfinal.demo.load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import dsfinal.demo.logic.LogHistogram;
+
+/**
+ * 壓力測試的統計：每個端點的延遲直方圖 (微秒) 與錯誤數，執行緒安全。
+ */
+public class LoadStats {
+
+    private final Map<String, LogHistogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+    private volatile boolean stopped;
+
+    /** 暖機期間不記錄 */
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    /** 通知所有模擬使用者在目前的請求完成後停止 */
+    public void stop() {
+        recording = false;
+        stopped = true;
+    }
+
+    public boolean stopped() {
+        return stopped;
+    }
+
+    public void record(String endpoint, long nanos, boolean ok) {
+        if (!recording) return;
+        latencies.computeIfAbsent(endpoint, k -> new LogHistogram()).record(nanos / 1000);
+        LongAdder err = errors.computeIfAbsent(endpoint, k -> new LongAdder());
+        if (!ok) err.increment();
+    }
+
+    /** 依端點整理的結果；seconds 為實際記錄的秒數 */
+    public Map<String, Map<String, Object>> summary(double seconds) {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        long totalCount = 0;
+        long totalErrors = 0;
+        for (Map.Entry<String, LogHistogram> e : new TreeMap<>(latencies).entrySet()) {
+            LogHistogram h = e.getValue();
+            long err = errors.get(e.getKey()).sum();
+            result.put(e.getKey(), row(h.count(), err, seconds, h.percentile(0.5), h.percentile(0.9), h.percentile(0.99), h.max()));
+            totalCount += h.count();
+            totalErrors += err;
+        }
+        // 合計列只看數量，百分位數以各端點分開的為準
+        result.put("TOTAL", row(totalCount, totalErrors, seconds, -1, -1, -1, -1));
+        return result;
+    }
+
+    private static Map<String, Object> row(long count, long errors, double seconds, long p50, long p90, long p99, long max) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("count", count);
+        row.put("rps", round(count / seconds));
+        row.put("errors", errors);
+        row.put("error_rate", count == 0 ? 0.0 : round(100.0 * errors / count));
+        if (p50 >= 0) {
+            row.put("p50_ms", round(p50 / 1000.0));
+            row.put("p90_ms", round(p90 / 1000.0));
+            row.put("p99_ms", round(p99 / 1000.0));
+            row.put("max_ms", round(max / 1000.0));
+        }
+        return row;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+}
@@ -0,0 +1,69 @@
+package dsfinal.demo.load;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * replay 目錄沒有記錄資料時，用 benchmark 的多語言語料 (corpus/) 產生 pages.ndjson，
+ * 每篇複製成多個網址，讓每次搜尋都有足夠的結果可以爬取。
+ */
+public final class ReplaySeed {
+
+    private ReplaySeed() {}
+
+    /** 回傳語料中的查詢字串，作為搜尋情境的查詢池 */
+    public static List<String> seedIfEmpty(File dir, int copies) throws IOException {
+        List<String[]> entries = new ArrayList<>();
+        for (String line : readLines("corpus/index.tsv")) {
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            entries.add(line.split("\t"));
+        }
+        List<String> queries = new ArrayList<>();
+        for (String[] f : entries) queries.add(f[4]);
+
+        boolean recorded = new File(dir, "pages.ndjson").exists()
+                || new File(dir, "local_index.ndjson").exists()
+                || new File(dir, "google_cache.ndjson").exists();
+        if (recorded) return queries;
+
+        dir.mkdirs();
+        ObjectMapper mapper = new ObjectMapper();
+        try (BufferedWriter writer = Files.newBufferedWriter(new File(dir, "pages.ndjson").toPath(), StandardCharsets.UTF_8)) {
+            for (String[] f : entries) {
+                String html = String.join("\n", readLines("corpus/" + f[0]));
+                for (int i = 0; i < copies; i++) {
+                    ObjectNode node = mapper.createObjectNode();
+                    node.put("url", i == 0 ? f[2] : f[2] + (f[2].contains("?") ? "&" : "?") + "copy=" + i);
+                    node.put("title", f[3]);
+                    node.put("html", html);
+                    writer.write(mapper.writeValueAsString(node));
+                    writer.newLine();
+                }
+            }
+        }
+        System.out.println(">>> 已在 " + dir.getAbsolutePath() + " 產生重播用網頁 " + entries.size() * copies + " 篇");
+        return queries;
+    }
+
+    private static List<String> readLines(String resource) throws IOException {
+        InputStream in = ReplaySeed.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) throw new IOException("找不到語料: " + resource);
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) lines.add(line);
+        }
+        return lines;
+    }
+}
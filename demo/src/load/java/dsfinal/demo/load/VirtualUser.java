@@ -0,0 +1,139 @@
+package dsfinal.demo.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dsfinal.demo.logic.HttpGateway;
+
+/**
+ * 一個模擬使用者：收到回應後才送出下一個請求 (closed loop)，自己保存登入的 session cookie。
+ *
+ * - search：從查詢池挑選查詢，部分加上隨機字尾讓結果快取 miss
+ * - auth：註冊並登入一次，之後反覆加入、查詢、移除收藏
+ * - mixed：每一輪依比例選擇搜尋或收藏操作
+ */
+public class VirtualUser implements Runnable {
+
+    public enum Scenario { SEARCH, AUTH, MIXED }
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int id;
+    private final Scenario scenario;
+    private final LoadGenerator.Options options;
+    private final List<String> queries;
+    private final HttpClient client;
+    private final LoadStats stats;
+    private final Random random;
+
+    private String sessionCookie;
+    private boolean loggedIn;
+    private int favoriteSeq;
+
+    public VirtualUser(int id, Scenario scenario, LoadGenerator.Options options, List<String> queries, HttpClient client, LoadStats stats) {
+        this.id = id;
+        this.scenario = scenario;
+        this.options = options;
+        this.queries = queries;
+        this.client = client;
+        this.stats = stats;
+        this.random = new Random(options.seed * 31 + id);
+    }
+
+    @Override
+    public void run() {
+        while (!stats.stopped() && !Thread.currentThread().isInterrupted()) {
+            try {
+                switch (scenario) {
+                    case SEARCH:
+                        search();
+                        break;
+                    case AUTH:
+                        favoriteRound();
+                        break;
+                    default:
+                        if (random.nextDouble() < options.searchRatio) search();
+                        else favoriteRound();
+                }
+                if (options.thinkMs > 0) Thread.sleep(options.thinkMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void search() throws InterruptedException {
+        String q = queries.get(random.nextInt(queries.size()));
+        if (random.nextDouble() < options.uniqueRatio) q = q + " v" + Integer.toHexString(random.nextInt());
+        send("search", get("/api/search?q=" + HttpGateway.encode(q)), res -> res.path("results").isArray());
+    }
+
+    private void favoriteRound() throws InterruptedException {
+        if (!loggedIn) {
+            String name = "load_" + options.runId + "_" + id;
+            send("auth.register", post("/api/auth/register?username=" + name + "&password=pw"), res -> true);
+            loggedIn = send("auth.login", post("/api/auth/login?username=" + name + "&password=pw"), this::success);
+            if (!loggedIn) return;
+        }
+        String url = "https://example.com/load/" + id + "/" + (favoriteSeq++ % 20);
+        String body = "{\"url\":\"" + url + "\",\"title\":\"load " + id + "\"}";
+        send("favorite.add", postJson("/api/auth/favorite/add", body), this::success);
+        send("favorite.check", get("/api/auth/favorite/check?url=" + HttpGateway.encode(url)), res -> res.path("favorited").asBoolean());
+        send("auth.check", get("/api/auth/check"), res -> res.path("isLoggedIn").asBoolean());
+        send("favorite.remove", postJson("/api/auth/favorite/remove", body), this::success);
+    }
+
+    private boolean success(JsonNode res) {
+        return res.path("success").asBoolean();
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return request(path).GET();
+    }
+
+    private HttpRequest.Builder post(String path) {
+        return request(path).POST(HttpRequest.BodyPublishers.noBody());
+    }
+
+    private HttpRequest.Builder postJson(String path, String json) {
+        return request(path).header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(options.baseUrl + path)).timeout(TIMEOUT);
+        if (sessionCookie != null) b.header("Cookie", sessionCookie);
+        return b;
+    }
+
+    // 送出請求並記錄延遲；連線失敗、非 2xx 或回應內容不符預期都算錯誤
+    private boolean send(String endpoint, HttpRequest.Builder builder, Check check) throws InterruptedException {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            HttpResponse<String> res = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            res.headers().firstValue("Set-Cookie").ifPresent(c -> {
+                if (c.startsWith("JSESSIONID=")) sessionCookie = c.substring(0, c.indexOf(';') > 0 ? c.indexOf(';') : c.length());
+            });
+            ok = res.statusCode() / 100 == 2 && check.test(MAPPER.readTree(res.body()));
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            ok = false;
+        }
+        stats.record(endpoint, System.nanoTime() - start, ok);
+        return ok;
+    }
+
+    private interface Check {
+        boolean test(JsonNode response);
+    }
+}
@@ -0,0 +1,37 @@
+package dsfinal.demo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import dsfinal.demo.logic.HttpFetcher;
+import dsfinal.demo.logic.HttpGateway;
+import dsfinal.demo.logic.MyMemoryTranslator;
+import dsfinal.demo.logic.Translator;
+
+/**
+ * search.backend=google (預設) 時的外部服務：網頁爬取走 HTTP，翻譯用 MyMemory。
+ * 搜尋本身由 GoogleSearchClient 提供；search.backend=replay 時三者都由 ReplayBackend 提供。
+ */
+@Configuration
+@ConditionalOnProperty(name = "search.backend", havingValue = "google", matchIfMissing = true)
+public class BackendConfig {
+
+	// 擷取用的執行緒數 (一次查詢最多10筆結果)
+	private static final int EXTRACT_THREADS = 10;
+
+	// crawl.mode：stream 邊讀邊擷取文字與連結，不建立 DOM；dom 用 Jsoup 完整解析
+	@Bean(destroyMethod = "shutdown")
+	public HttpFetcher fetcher(HttpGateway http,
+			@Value("${crawl.max-page-bytes:2097152}") long maxPageBytes,
+			@Value("${crawl.mode:stream}") String crawlMode) {
+		return new HttpFetcher(http, maxPageBytes, !"dom".equalsIgnoreCase(crawlMode), EXTRACT_THREADS);
+	}
+
+	@Bean
+	public Translator translator(HttpGateway http) {
+		return new MyMemoryTranslator(http);
+	}
+
+}
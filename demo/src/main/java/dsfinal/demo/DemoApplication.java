@@ -1,7 +1,14 @@
 package dsfinal.demo;
 
+import java.util.concurrent.ExecutorService;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+
+import dsfinal.demo.logic.HttpGateway;
+import dsfinal.demo.logic.ThreadMode;
 
 @SpringBootApplication
 public class DemoApplication {
@@ -10,4 +17,23 @@ public class DemoApplication {
 		SpringApplication.run(DemoApplication.class, args);
 	}
 
+	// 所有對外請求共用的 HTTP 用戶端
+	@Bean(destroyMethod = "shutdown")
+	public HttpGateway httpGateway(@Value("${http.max-connections-per-host:6}") int maxPerHost,
+			@Value("${http.connect-timeout-ms:2000}") long connectTimeoutMs,
+			@Value("${http.http2:true}") boolean http2) {
+		return new HttpGateway(maxPerHost, connectTimeoutMs, http2);
+	}
+
+	// 搜尋流程中評分、摘要等 CPU 工作共用的執行緒；
+	// spring.threads.virtual.enabled=true 且執行於 Java 21+ 時改用虛擬執行緒 (Tomcat 也一併切換)
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService pipelineExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+		boolean useVirtual = virtual && ThreadMode.virtualThreadsSupported();
+		if (virtual && !useVirtual) {
+			System.out.println(">>> 此 JVM 不支援虛擬執行緒 (需要 Java 21+)，改用平台執行緒");
+		}
+		return ThreadMode.newExecutor("pipeline", useVirtual, Runtime.getRuntime().availableProcessors());
+	}
+
 }
@@ -1,47 +1,32 @@
 package dsfinal.demo.controller;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import dsfinal.demo.model.User;
 import dsfinal.demo.model.WebPage;
-import jakarta.annotation.PostConstruct;
+import dsfinal.demo.service.UserRepository;
 import jakarta.servlet.http.HttpSession;
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
-    private Map<String, User> userDb = new ConcurrentHashMap<>();
-    
-    // 設定存檔的檔名
-    private final String DATA_FILE = "users_data.json";
-    private final ObjectMapper mapper = new ObjectMapper();
-
-    // 程式啟動時，自動執行此方法載入資料
-    @PostConstruct
-    public void init() {
-        loadData();
-    }
+    // 使用者與收藏資料庫
+    @Autowired
+    private UserRepository userDb;
 
     // 註冊
     @PostMapping("/register")
     public Map<String, Object> register(@RequestParam String username, @RequestParam String password) {
         Map<String, Object> response = new HashMap<>();
-        if (userDb.containsKey(username)) {
+        if (!userDb.register(username, password)) {
             response.put("success", false);
             response.put("message", "帳號已存在");
         } else {
-            userDb.put(username, new User(username, password));
-            saveData();
             response.put("success", true);
             response.put("message", "註冊成功，請登入");
         }
@@ -52,7 +37,7 @@ public class AuthController {
     @PostMapping("/login")
     public Map<String, Object> login(@RequestParam String username, @RequestParam String password, HttpSession session) {
         Map<String, Object> response = new HashMap<>();
-        User user = userDb.get(username);
+        User user = userDb.find(username);
         
         if (user != null && user.getPassword().equals(password)) {
             session.setAttribute("currentUser", user); 
@@ -82,11 +67,11 @@ public class AuthController {
         
         if (sessionUser != null) {
             // 從記憶體DB拿最新的資料
-            User latestUser = userDb.get(sessionUser.getUsername());
+            User latestUser = userDb.find(sessionUser.getUsername());
             if (latestUser != null) {
                 response.put("isLoggedIn", true);
                 response.put("username", latestUser.getUsername());
-                response.put("favorites", latestUser.getFavorites());
+                response.put("favorites", userDb.listFavorites(latestUser.getUsername()));
             } else {
                 response.put("isLoggedIn", false);
             }
@@ -104,10 +89,9 @@ public class AuthController {
         
         if (sessionUser != null) {
             // 更新 DB 中的使用者資料
-            User dbUser = userDb.get(sessionUser.getUsername());
+            User dbUser = userDb.find(sessionUser.getUsername());
             if (dbUser != null) {
-                dbUser.addFavorite(page);
-                saveData();
+                userDb.addFavorite(dbUser.getUsername(), page.url, page.title);
                 
                 session.setAttribute("currentUser", dbUser);
                 response.put("success", true);
@@ -119,6 +103,15 @@ public class AuthController {
         return response;
     }
 
+    // 查詢是否已收藏
+    @GetMapping("/favorite/check")
+    public Map<String, Object> isFavorite(@RequestParam String url, HttpSession session) {
+        Map<String, Object> response = new HashMap<>();
+        User sessionUser = (User) session.getAttribute("currentUser");
+        response.put("favorited", sessionUser != null && userDb.isFavorite(sessionUser.getUsername(), url));
+        return response;
+    }
+
     // 移除最愛
     @PostMapping("/favorite/remove")
     public Map<String, Object> removeFavorite(@RequestBody WebPage page, HttpSession session) {
@@ -127,10 +120,9 @@ public class AuthController {
         
         if (sessionUser != null) {
             // 更新 DB 中的使用者資料
-            User dbUser = userDb.get(sessionUser.getUsername());
+            User dbUser = userDb.find(sessionUser.getUsername());
             if (dbUser != null) {
-                dbUser.removeFavorite(page.url); // 使用User.java原本就有的 remove 方法
-                saveData();
+                userDb.removeFavorite(dbUser.getUsername(), page.url);
                 
                 session.setAttribute("currentUser", dbUser);
                 response.put("success", true);
@@ -141,33 +133,4 @@ public class AuthController {
         }
         return response;
     }
-
-
-    // 將記憶體資料寫入JSON檔案
-    private void saveData() {
-        try {
-            mapper.writeValue(new File(DATA_FILE), userDb);
-            System.out.println(">>> 使用者資料已儲存至: " + DATA_FILE);
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.err.println(">>> 儲存資料失敗: " + e.getMessage());
-        }
-    }
-
-    // 從JSON檔案讀取資料到記憶體
-    private void loadData() {
-        File file = new File(DATA_FILE);
-        if (file.exists()) {
-            try {
-                userDb = mapper.readValue(file, new TypeReference<Map<String, User>>(){});
-                System.out.println(">>> 成功載入使用者資料，共 " + userDb.size() + " 筆");
-            } catch (IOException e) {
-                e.printStackTrace();
-                System.err.println(">>> 讀取資料失敗，將使用空資料庫");
-                userDb = new ConcurrentHashMap<>();
-            }
-        } else {
-            System.out.println(">>> 找不到資料檔，將建立新的: " + DATA_FILE);
-        }
-    }
 }
\ No newline at end of file
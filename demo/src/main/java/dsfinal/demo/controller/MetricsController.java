@@ -0,0 +1,41 @@
+package dsfinal.demo.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import dsfinal.demo.logic.PipelineMetrics;
+import dsfinal.demo.logic.SearchBackend;
+import dsfinal.demo.service.BackgroundCrawler;
+import dsfinal.demo.service.LocalIndexService;
+
+/**
+ * 搜尋流程的統計資料：各階段延遲 (毫秒)、計數器與下載量分布。
+ */
+@RestController
+public class MetricsController {
+
+    @Autowired
+    private LocalIndexService localIndex;
+
+    @Autowired
+    private BackgroundCrawler backgroundCrawler;
+
+    @Autowired
+    private SearchBackend searchBackend;
+
+    @GetMapping("/api/metrics")
+    public Map<String, Object> metrics() {
+        Map<String, Object> response = new LinkedHashMap<>(PipelineMetrics.get().snapshot());
+
+        Map<String, Object> gauges = new LinkedHashMap<>();
+        gauges.put("local_index.size", localIndex.size());
+        gauges.put("crawler.frontier.size", backgroundCrawler.frontierSize());
+        gauges.put("google.cache.size", searchBackend.cacheSize());
+        response.put("gauges", gauges);
+        return response;
+    }
+}
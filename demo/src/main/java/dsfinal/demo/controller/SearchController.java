@@ -1,18 +1,34 @@
 package dsfinal.demo.controller;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dsfinal.demo.logic.KeywordModel;
+import dsfinal.demo.logic.PipelineMetrics;
 import dsfinal.demo.logic.SemanticAnalyzer;
+import dsfinal.demo.logic.SuggestionIndex;
+import dsfinal.demo.logic.ThreadMode;
+import dsfinal.demo.logic.TtlLruCache;
 import dsfinal.demo.model.WebPage;
 import dsfinal.demo.service.AiSummaryService;
 import dsfinal.demo.service.GoogleSearchService;
+import dsfinal.demo.service.SearchListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 @RestController
 public class SearchController {
@@ -23,25 +39,212 @@ public class SearchController {
     @Autowired
     private AiSummaryService aiSummaryService;
     
-    private SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer();
+    // 相關關鍵字的長期統計，所有搜尋共用並定期存檔
+    @Value("${keyword-model.file:keyword_model.bin}")
+    private String keywordModelFile;
+
+    private KeywordModel keywordModel;
+    private SemanticAnalyzer semanticAnalyzer;
+
+    // 自動補完：有結果的查詢權重較高，相關關鍵字建議次之
+    private static final int QUERY_WEIGHT = 3;
+    private static final int RELATED_WEIGHT = 1;
+    private final SuggestionIndex suggestionIndex = new SuggestionIndex();
+
+    // 熱門查詢快取：最多200筆，10分鐘過期
+    private final TtlLruCache<String, Map<String, Object>> resultCache = new TtlLruCache<>(200, 10 * 60 * 1000L);
+
+    @Autowired
+    private ExecutorService pipelineExecutor;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // 串流搜尋在背景執行，不占用 Tomcat 執行緒 (虛擬執行緒模式下每個串流一個虛擬執行緒)
+    private ExecutorService streamExecutor;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final PipelineMetrics metrics = PipelineMetrics.get();
+
+    @PostConstruct
+    public void init() {
+        keywordModel = new KeywordModel(keywordModelFile);
+        semanticAnalyzer = new SemanticAnalyzer(keywordModel);
+        // 重新啟動後，先以過去累積的「查詢詞 + 相關詞」作為補完候選
+        suggestionIndex.recordAll(keywordModel.topPhrases());
+        streamExecutor = ThreadMode.newExecutor("search-stream", virtualThreads && ThreadMode.virtualThreadsSupported(), 0);
+    }
 
+    /**
+     * 以 CompletableFuture 回傳，等待搜尋、爬取與摘要的期間不占用 Tomcat 執行緒。
+     * trace=true 時在回應中附上這次請求各階段的耗時 (命中快取時只有 search.total)
+     */
     @GetMapping("/api/search")
-    public Map<String, Object> search(@RequestParam String q) {
-        // 1. 搜尋
-        List<WebPage> results = searchService.searchAndRank(q);
-        
-        // 2. 語意分析
-        List<String> related = semanticAnalyzer.deriveRelatedKeywords(results, q);
+    public CompletableFuture<Map<String, Object>> search(@RequestParam String q,
+                                                         @RequestParam(defaultValue = "google") String mode,
+                                                         @RequestParam(defaultValue = "false") boolean trace) {
+        boolean local = "local".equalsIgnoreCase(mode);
+        // 空白不同的查詢用同一個查詢字串執行；大小寫只在快取 key 中忽略 (搜尋字詞判斷需要原本的大小寫)
+        String query = normalizeQuery(q);
+        String key = (local ? "local|" : "") + cacheKey(query);
+        PipelineMetrics.Trace requestTrace = trace ? metrics.beginTrace() : null;
+        PipelineMetrics.Span span = metrics.start("search.total");
+        boolean[] loaded = new boolean[1];
+        CompletableFuture<Map<String, Object>> pending;
+        try {
+            // 沒有結果 (例如 API 額度用完) 不寫入快取，完成時才判斷
+            pending = resultCache.getAsync(key, k -> {
+                loaded[0] = true;
+                return runPipelineAsync(query, local, requestTrace);
+            }, SearchController::hasResults);
+        } finally {
+            if (trace) metrics.endTrace();
+        }
+        metrics.increment(loaded[0] ? "cache.result.miss" : "cache.result.hit");
+
+        return pending.whenComplete((r, e) -> span.close()).thenApply(response -> {
+            if (hasResults(response)) suggestionIndex.record(q, QUERY_WEIGHT);
+
+            if (requestTrace != null) {
+                // 快取中的物件是共用的，附加 trace 前先複製
+                Map<String, Object> traced = new HashMap<>(response);
+                traced.put("trace", requestTrace.spans());
+                return traced;
+            }
+            return response;
+        });
+    }
+
+    /**
+     * 串流版搜尋 (Server-Sent Events)，事件依序為：
+     * snippets (摘要初步排序) → update (每爬完一頁重新排序) → related_keywords → ai_summary → done
+     */
+    @GetMapping(value = "/api/search/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter searchStream(@RequestParam String q) {
+        SseEmitter emitter = new SseEmitter(60_000L);
+        String query = normalizeQuery(q);
+        String key = cacheKey(query);
+
+        streamExecutor.execute(() -> {
+            try (PipelineMetrics.Span span = metrics.start("search.stream")) {
+                Map<String, Object> cached = resultCache.get(key);
+                if (cached != null) {
+                    send(emitter, "snippets", Map.of("results", cached.get("results")));
+                    send(emitter, "related_keywords", cached.get("related_keywords"));
+                    send(emitter, "ai_summary", cached.get("ai_summary"));
+                    send(emitter, "done", Map.of());
+                    emitter.complete();
+                    return;
+                }
+
+                List<WebPage> results = searchService.searchAndRank(query, new SearchListener() {
+                    @Override
+                    public void onSnippets(List<WebPage> ranked) {
+                        send(emitter, "snippets", Map.of("results", ranked));
+                    }
+
+                    @Override
+                    public void onPageCrawled(WebPage page, List<WebPage> ranked) {
+                        send(emitter, "update", Map.of("url", page.url, "results", ranked));
+                    }
+                });
+                if (results.isEmpty()) {
+                    results = searchService.searchLocal(query);
+                    send(emitter, "snippets", Map.of("results", results));
+                }
+
+                List<String> related = semanticAnalyzer.deriveRelatedKeywords(results, query);
+                send(emitter, "related_keywords", related);
+                recordSuggestions(related);
+
+                String aiSummary = aiSummaryService.generateSummary(query, results);
+                send(emitter, "ai_summary", aiSummary);
 
-        // 3. 生成AI摘要
-        String aiSummary = aiSummaryService.generateSummary(q, results);
+                if (!results.isEmpty()) {
+                    resultCache.put(key, buildResponse(results, related, aiSummary));
+                    suggestionIndex.record(q, QUERY_WEIGHT);
+                }
+                send(emitter, "done", Map.of());
+                emitter.complete();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    // 當下就序列化，之後網頁物件再被修改也不影響已送出的內容
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(mapper.writeValueAsString(data), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new IllegalStateException("串流已中斷", e);
+        }
+    }
+
+    // 各步驟的後續工作在其他執行緒上執行，Trace 需明確帶過去
+    private CompletableFuture<Map<String, Object>> runPipelineAsync(String q, boolean local, PipelineMetrics.Trace trace) {
+        // 1. 搜尋 (mode=local 或 Google 沒有結果時改用本機索引)
+        CompletableFuture<List<WebPage>> search = local
+                ? searchService.searchLocalAsync(q)
+                : searchService.searchAndRankAsync(q, null).thenCompose(results -> results.isEmpty()
+                        ? metrics.inTrace(trace, () -> searchService.searchLocalAsync(q))
+                        : CompletableFuture.completedFuture(results));
+
+        return search.thenCompose(results -> metrics.inTrace(trace, () -> {
+            // 2. 語意分析與 3. 生成AI摘要 同時進行
+            CompletableFuture<List<String>> related = CompletableFuture.supplyAsync(
+                    () -> metrics.inTrace(trace, () -> semanticAnalyzer.deriveRelatedKeywords(results, q)), pipelineExecutor)
+                    .thenApply(keywords -> {
+                        recordSuggestions(keywords);
+                        return keywords;
+                    });
+            CompletableFuture<String> aiSummary = aiSummaryService.generateSummaryAsync(q, results);
 
-        // 4. 包裝結果
+            // 4. 包裝結果
+            return related.thenCombine(aiSummary, (keywords, summary) -> buildResponse(results, keywords, summary));
+        }));
+    }
+
+    private void recordSuggestions(List<String> related) {
+        for (String keyword : related) suggestionIndex.record(keyword, RELATED_WEIGHT);
+    }
+
+    /**
+     * 搜尋框的自動補完：熱門查詢與相關關鍵字建議中以 q 開頭、權重最高的 limit 個 (最多 10 個)。
+     * 只查記憶體中的字典樹，不會觸發搜尋。
+     */
+    @GetMapping("/api/suggest")
+    public List<String> suggest(@RequestParam String q, @RequestParam(defaultValue = "8") int limit) {
+        metrics.increment("suggest.request");
+        return suggestionIndex.suggest(q, limit);
+    }
+
+    private Map<String, Object> buildResponse(List<WebPage> results, List<String> related, String aiSummary) {
         Map<String, Object> response = new HashMap<>();
         response.put("results", results);
         response.put("related_keywords", related);
         response.put("ai_summary", aiSummary);
-        
         return response;
     }
+
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+        keywordModel.close();
+    }
+
+    private static boolean hasResults(Map<String, Object> response) {
+        List<?> results = (List<?>) response.get("results");
+        return results != null && !results.isEmpty();
+    }
+
+    private static String normalizeQuery(String q) {
+        return q.trim().replaceAll("\\s+", " ");
+    }
+
+    // 快取 key：不分大小寫的查詢字串 + 語言
+    private String cacheKey(String query) {
+        String lower = query.toLowerCase();
+        return searchService.detectLanguage(lower) + "|" + lower;
+    }
 }
\ No newline at end of file
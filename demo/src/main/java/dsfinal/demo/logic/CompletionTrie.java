@@ -0,0 +1,197 @@
+package dsfinal.demo.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 前綴補完用的壓縮字典樹 (radix tree)：只有一個子節點的路徑合併成一條邊，
+ * 每個節點預先算好「以此為前綴的前 k 名」，查詢時只需沿著前綴走到節點，不必再往下搜尋。
+ *
+ * 節點資料都存在平行的 int 陣列中，邊上的字直接指向原本的 key 字串，不另外複製。
+ * 建立後不可修改，可跨執行緒共用；內容變動時由呼叫端重新建立一份。
+ */
+public final class CompletionTrie {
+
+    private static final int[] NO_TOPS = new int[0];
+
+    // 依 key 排序後的資料，id 即排序後的位置
+    private final String[] keys;
+    private final String[] displays;
+    private final int[] weights;
+
+    // 節點：進入此節點的邊 = keys[labelKey].substring(labelStart, labelStart + labelLen)
+    private final int[] labelKey;
+    private final int[] labelStart;
+    private final int[] labelLen;
+    // 子節點是連續的一段，依第一個字排序
+    private final int[] childStart;
+    private final int[] childCount;
+    private final char[] firstChar;
+    // 每個節點的前 k 名 id：tops[topStart[n] .. topStart[n + 1])
+    private final int[] topStart;
+    private final int[] tops;
+
+    /**
+     * keys 必須已正規化且不重複；displays 為回傳給使用者的原始字串。
+     * keys 已依字典順序排列時 (例如來自 TreeMap) 省略排序，兩萬個詞可省下大部分的建立時間。
+     */
+    public static CompletionTrie build(List<String> keys, List<String> displays, List<Integer> weights, int k) {
+        if (isSorted(keys)) {
+            int[] w = new int[weights.size()];
+            for (int i = 0; i < w.length; i++) w[i] = weights.get(i);
+            return new CompletionTrie(keys.toArray(new String[0]), displays.toArray(new String[0]), w, k);
+        }
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+
+        String[] sortedKeys = new String[order.length];
+        String[] sortedDisplays = new String[order.length];
+        int[] sortedWeights = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys.get(order[i]);
+            sortedDisplays[i] = displays.get(order[i]);
+            sortedWeights[i] = weights.get(order[i]);
+        }
+        return new CompletionTrie(sortedKeys, sortedDisplays, sortedWeights, k);
+    }
+
+    public static CompletionTrie empty() {
+        return build(List.of(), List.of(), List.of(), 1);
+    }
+
+    private CompletionTrie(String[] keys, String[] displays, int[] weights, int k) {
+        this.keys = keys;
+        this.displays = displays;
+        this.weights = weights;
+
+        // 節點數最多為 key 數的兩倍 (加上根節點)
+        int max = 2 * keys.length + 1;
+        int[] lKey = new int[max], lStart = new int[max], lLen = new int[max];
+        int[] cStart = new int[max], cCount = new int[max], terminal = new int[max];
+        Arrays.fill(terminal, -1);
+
+        // BFS 建立，同一個節點的子節點編號連續；範圍 [lo, hi) 的 key 都以此節點為前綴，depth 為已走過的字數
+        int nodes = 1;
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        if (keys.length > 0) queue.add(new int[]{0, 0, keys.length, 0});
+        while (!queue.isEmpty()) {
+            int[] task = queue.poll();
+            int node = task[0], lo = task[1], hi = task[2], depth = task[3];
+            if (keys[lo].length() == depth) terminal[node] = lo++;
+
+            cStart[node] = nodes;
+            while (lo < hi) {
+                char c = keys[lo].charAt(depth);
+                int end = lo + 1;
+                while (end < hi && keys[end].charAt(depth) == c) end++;
+                // 已排序，整段的共同前綴就是第一個與最後一個的共同前綴
+                int lcp = commonPrefix(keys[lo], keys[end - 1], depth + 1);
+                int child = nodes++;
+                lKey[child] = lo;
+                lStart[child] = depth;
+                lLen[child] = lcp - depth;
+                queue.add(new int[]{child, lo, end, lcp});
+                lo = end;
+            }
+            cCount[node] = nodes - cStart[node];
+        }
+
+        this.labelKey = Arrays.copyOf(lKey, nodes);
+        this.labelStart = Arrays.copyOf(lStart, nodes);
+        this.labelLen = Arrays.copyOf(lLen, nodes);
+        this.childStart = Arrays.copyOf(cStart, nodes);
+        this.childCount = Arrays.copyOf(cCount, nodes);
+        this.firstChar = new char[nodes];
+        for (int n = 1; n < nodes; n++) firstChar[n] = keys[labelKey[n]].charAt(labelStart[n]);
+
+        // 子節點編號一定比父節點大，由後往前合併子節點的前 k 名 (同分時 id 小、也就是字典順序在前的優先)
+        int[][] perNode = new int[nodes][];
+        int total = 0;
+        for (int n = nodes - 1; n >= 0; n--) {
+            // 葉節點 (約一半的節點) 只有自己
+            if (childCount[n] == 0) {
+                perNode[n] = terminal[n] >= 0 ? new int[]{terminal[n]} : NO_TOPS;
+                total += perNode[n].length;
+                continue;
+            }
+            TopK top = new TopK(Math.max(1, k));
+            if (terminal[n] >= 0) top.offer(weights[terminal[n]], terminal[n]);
+            for (int c = childStart[n]; c < childStart[n] + childCount[n]; c++) {
+                for (int id : perNode[c]) {
+                    if (!top.accepts(weights[id], id)) break;
+                    top.offer(weights[id], id);
+                }
+            }
+            int[] slots = top.sortedSlots();
+            int[] ids = slots.length == 0 ? NO_TOPS : new int[slots.length];
+            for (int i = 0; i < slots.length; i++) ids[i] = top.id(slots[i]);
+            perNode[n] = ids;
+            total += ids.length;
+        }
+        this.topStart = new int[nodes + 1];
+        this.tops = new int[total];
+        for (int n = 0, pos = 0; n < nodes; n++) {
+            topStart[n] = pos;
+            System.arraycopy(perNode[n], 0, tops, pos, perNode[n].length);
+            pos += perNode[n].length;
+        }
+        topStart[nodes] = total;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /** 以 prefix (已正規化) 開頭、權重最高的最多 limit 個結果，權重相同時依字典順序 */
+    public List<String> complete(String prefix, int limit) {
+        int node = 0;
+        int i = 0;
+        while (i < prefix.length()) {
+            node = findChild(node, prefix.charAt(i));
+            if (node < 0) return Collections.emptyList();
+            String key = keys[labelKey[node]];
+            int start = labelStart[node];
+            int len = labelLen[node];
+            // prefix 可能停在邊的中間，此時答案就是這個子節點的前 k 名
+            for (int j = 0; j < len && i < prefix.length(); j++, i++) {
+                if (key.charAt(start + j) != prefix.charAt(i)) return Collections.emptyList();
+            }
+        }
+
+        int from = topStart[node];
+        int to = Math.min(topStart[node + 1], from + limit);
+        List<String> result = new ArrayList<>(Math.max(0, to - from));
+        for (int t = from; t < to; t++) result.add(displays[tops[t]]);
+        return result;
+    }
+
+    private int findChild(int node, char c) {
+        int lo = childStart[node];
+        int hi = lo + childCount[node] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (firstChar[mid] < c) lo = mid + 1;
+            else if (firstChar[mid] > c) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private static boolean isSorted(List<String> keys) {
+        for (int i = 1; i < keys.size(); i++) {
+            if (keys.get(i - 1).compareTo(keys.get(i)) >= 0) return false;
+        }
+        return true;
+    }
+
+    private static int commonPrefix(String a, String b, int from) {
+        int n = Math.min(a.length(), b.length());
+        int i = from;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+}
@@ -0,0 +1,77 @@
+package dsfinal.demo.logic;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Count-Min Sketch：以固定大小的計數表估計任意多個 key 的出現次數，記憶體與 key 的數量無關。
+ * 估計值只會偏高不會偏低；採用 conservative update (只加到目前最小值)，降低碰撞造成的高估。
+ *
+ * key 為 64 位元雜湊值，由呼叫端計算。非執行緒安全，由呼叫端同步。
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final int[] cells;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || width < 1 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("depth 必須大於 0，width 必須是 2 的次方");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.mask = width - 1;
+        this.cells = new int[depth * width];
+    }
+
+    /** 增加 count 次，回傳增加後的估計值 */
+    public int add(long key, int count) {
+        int estimate = estimate(key);
+        int target = saturatedAdd(estimate, count);
+        for (int row = 0; row < depth; row++) {
+            int i = index(key, row);
+            if (cells[i] < target) cells[i] = target;
+        }
+        return target;
+    }
+
+    public int estimate(long key) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, cells[index(key, row)]);
+        }
+        return min;
+    }
+
+    /** 所有計數減半，讓舊資料的影響逐漸淡出 */
+    public void halve() {
+        for (int i = 0; i < cells.length; i++) cells[i] >>>= 1;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(depth);
+        out.writeInt(width);
+        for (int c : cells) out.writeInt(c);
+    }
+
+    public static CountMinSketch readFrom(DataInputStream in) throws IOException {
+        CountMinSketch sketch = new CountMinSketch(in.readInt(), in.readInt());
+        for (int i = 0; i < sketch.cells.length; i++) sketch.cells[i] = in.readInt();
+        return sketch;
+    }
+
+    // double hashing：第 row 列用 h1 + row * h2
+    private int index(long key, int row) {
+        int h1 = (int) key;
+        int h2 = (int) (key >>> 32) | 1;
+        return row * width + ((h1 + row * h2) & mask);
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        long sum = (long) a + b;
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+}
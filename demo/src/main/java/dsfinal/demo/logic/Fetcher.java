@@ -0,0 +1,35 @@
+package dsfinal.demo.logic;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 網頁爬取：下載並擷取標題、內文與連結。
+ */
+public interface Fetcher {
+
+    /**
+     * 非同步爬取。headers 為額外的請求標頭 (例如條件式重抓的 If-None-Match)。
+     * 非 200 或不是 HTML 時 page 為 null；連線失敗或逾時則以例外結束。
+     */
+    CompletableFuture<Result> fetch(String url, Map<String, String> headers, long timeoutMs);
+
+    class Result {
+        public final int status;
+        public final String url;
+        public final String etag;
+        public final String lastModified;
+        public final HtmlExtractor.Page page;
+        // 內容超過上限而被截斷 (下載或擷取時)
+        public final boolean truncated;
+
+        public Result(int status, String url, String etag, String lastModified, HtmlExtractor.Page page, boolean truncated) {
+            this.status = status;
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.page = page;
+            this.truncated = truncated;
+        }
+    }
+}
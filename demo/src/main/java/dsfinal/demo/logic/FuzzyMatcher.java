@@ -0,0 +1,115 @@
+package dsfinal.demo.logic;
+
+import java.util.Arrays;
+
+/**
+ * 近似字串搜尋 (Myers 位元平行演算法)：在文字中找出與 pattern 編輯距離最小的片段，
+ * 插入、刪除、替換各算一次錯誤。
+ *
+ * 每個文字字元只做幾次位元運算，pattern 超過 64 字時分成多個 64 位元區塊，
+ * 時間為 O(n·⌈m/64⌉)，掃描過程不配置物件。比對區分大小寫，需要時由呼叫端先轉小寫。
+ * 建立後不可修改，可跨執行緒共用。
+ */
+public class FuzzyMatcher {
+
+    private static final int W = 64;
+
+    private final int length;
+    private final int maxErrors;
+    private final int blocks;
+    // 最後一個區塊中 pattern 最後一個字元的位置，計分只看這一列
+    private final long lastBit;
+
+    // pattern 中出現過的字元 (排序後二分搜尋) 與各自的位置遮罩，每個字元 blocks 個 long
+    private final char[] alphabet;
+    private final long[] peq;
+
+    public FuzzyMatcher(String pattern, int maxErrors) {
+        if (pattern.isEmpty()) throw new IllegalArgumentException("pattern 不可為空字串");
+        this.length = pattern.length();
+        this.maxErrors = maxErrors;
+        this.blocks = (length + W - 1) / W;
+        this.lastBit = 1L << ((length - 1) % W);
+
+        char[] chars = pattern.toCharArray();
+        Arrays.sort(chars);
+        int distinct = 0;
+        for (int i = 0; i < chars.length; i++) {
+            if (i == 0 || chars[i] != chars[i - 1]) chars[distinct++] = chars[i];
+        }
+        this.alphabet = Arrays.copyOf(chars, distinct);
+        this.peq = new long[distinct * blocks];
+        for (int i = 0; i < length; i++) {
+            int c = Arrays.binarySearch(alphabet, pattern.charAt(i));
+            peq[c * blocks + i / W] |= 1L << (i % W);
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 回傳最像的片段的結束位置 (不含)，編輯距離超過 maxErrors 時回傳 -1。
+     * 同樣距離時取最早出現的一段，並延伸到該段中最後一個同距離的結束位置
+     * (例如 "荒野" 對 "荒也攻略" 取 "荒也" 而不是 "荒")。
+     */
+    public int findEnd(CharSequence text) {
+        long[] pv = new long[blocks];
+        long[] mv = new long[blocks];
+        Arrays.fill(pv, -1L);
+
+        int score = length;
+        int bestScore = maxErrors + 1;
+        int bestEnd = -1;
+        boolean inBestRun = false;
+
+        for (int j = 0; j < text.length(); j++) {
+            int c = Arrays.binarySearch(alphabet, text.charAt(j));
+            int base = c < 0 ? -1 : c * blocks;
+
+            // 搜尋時第 0 列全為 0 (任何位置都可以開始)，第一個區塊的水平差值為 0
+            int hin = 0;
+            for (int b = 0; b < blocks; b++) {
+                long eq = base < 0 ? 0 : peq[base + b];
+                long high = b == blocks - 1 ? lastBit : Long.MIN_VALUE;
+                hin = advance(pv, mv, b, eq, hin, high);
+            }
+            score += hin;
+
+            if (score < bestScore) {
+                bestScore = score;
+                bestEnd = j + 1;
+                inBestRun = true;
+            } else if (inBestRun && score == bestScore) {
+                bestEnd = j + 1;
+            } else {
+                inBestRun = false;
+            }
+        }
+        return bestEnd;
+    }
+
+    // 推進一個區塊一欄，回傳該區塊 high 那一列的水平差值 (-1、0、+1)
+    private static int advance(long[] pvs, long[] mvs, int b, long eq, int hin, long high) {
+        long pv = pvs[b];
+        long mv = mvs[b];
+        long xv = eq | mv;
+        if (hin < 0) eq |= 1L;
+        long xh = (((eq & pv) + pv) ^ pv) | eq;
+        long ph = mv | ~(xh | pv);
+        long mh = pv & xh;
+
+        int hout = 0;
+        if ((ph & high) != 0) hout = 1;
+        else if ((mh & high) != 0) hout = -1;
+
+        ph <<= 1;
+        mh <<= 1;
+        if (hin < 0) mh |= 1L;
+        else if (hin > 0) ph |= 1L;
+        pvs[b] = mh | ~(xv | ph);
+        mvs[b] = ph & xv;
+        return hout;
+    }
+}
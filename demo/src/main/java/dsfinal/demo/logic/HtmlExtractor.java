@@ -0,0 +1,622 @@
+package dsfinal.demo.logic;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Entities;
+
+/**
+ * 爬取網頁的內容擷取：搜尋只需要標題、可見文字與同網站的連結。
+ *
+ * 串流模式一次讀過原始 HTML (類似 SAX)，邊讀邊留下需要的部分，不建立 DOM；
+ * script/style/template 的內容略過，區塊元素與 &lt;br&gt; 視為空白，文字空白的處理與 Jsoup text() 相同。
+ * DOM 模式則用 Jsoup 解析後再轉成相同的結果。兩種模式讀取量都以 maxBytes 為上限，超過時截斷。
+ * Content-Type 沒有標示編碼時，串流模式與 Jsoup 一樣先看開頭的 BOM 與 &lt;meta charset&gt;，都沒有才用 UTF-8。
+ */
+public final class HtmlExtractor {
+
+    public static class Link {
+        public final String url;
+        public final String text;
+
+        public Link(String url, String text) {
+            this.url = url;
+            this.text = text;
+        }
+    }
+
+    public static class Page {
+        public final String title;
+        public final String text;
+        public final List<Link> links;
+        // 實際讀取的位元組數 (解壓縮後)，以及是否因超過上限而截斷
+        public final long bytes;
+        public final boolean truncated;
+
+        Page(String title, String text, List<Link> links, long bytes, boolean truncated) {
+            this.title = title;
+            this.text = text;
+            this.links = links;
+            this.bytes = bytes;
+            this.truncated = truncated;
+        }
+    }
+
+    // 與 Jsoup 的區塊元素相同 (再加上 br)，前後視為空白
+    private static final Set<String> BLOCK_TAGS = new HashSet<>(Arrays.asList(
+        "html", "head", "body", "frameset", "script", "noscript", "style", "meta", "link", "title", "frame",
+        "noframes", "section", "nav", "aside", "hgroup", "header", "footer", "p", "h1", "h2", "h3", "h4",
+        "h5", "h6", "ul", "ol", "pre", "div", "blockquote", "hr", "address", "figure", "figcaption", "form",
+        "fieldset", "ins", "del", "dl", "dt", "dd", "li", "table", "caption", "thead", "tfoot", "tbody",
+        "colgroup", "col", "tr", "th", "td", "video", "audio", "canvas", "details", "menu", "plaintext",
+        "template", "article", "main", "center", "dir", "applet", "marquee", "listing", "br"
+    ));
+
+    // 可以出現在 <head> 的元素，其他元素出現時代表 <head> 已結束
+    private static final Set<String> HEAD_TAGS = new HashSet<>(Arrays.asList(
+        "head", "base", "link", "meta", "noscript", "script", "style", "template", "title"
+    ));
+
+    // 內容不是可見文字的元素，讀到對應的結束標籤為止
+    private static final Set<String> SKIPPED_TAGS = new HashSet<>(Arrays.asList(
+        "script", "style", "template", "iframe", "noembed", "noframes", "xmp"
+    ));
+
+    // 找 <meta charset> 時只看開頭這麼多位元組
+    private static final int SNIFF_BYTES = 4096;
+
+    private HtmlExtractor() {}
+
+    /**
+     * 讀取 HTTP 回應的內容 (已解壓)。streaming 為 false 時改用 Jsoup DOM 解析 (同樣受 maxBytes 限制)。
+     * charset 為 Content-Type 標示的編碼，沒有標示時為 null。
+     */
+    public static Page read(InputStream body, String charset, String url, long maxBytes, boolean streaming) throws IOException {
+        try (CappedInputStream in = new CappedInputStream(body, maxBytes)) {
+            if (!streaming) {
+                Document doc = Jsoup.parse(in, charset, url);
+                return fromDocument(doc, in.count, in.truncated);
+            }
+            Charset cs = supported(charset);
+            InputStream source = in;
+            if (cs == null) {
+                BufferedInputStream buffered = new BufferedInputStream(in, SNIFF_BYTES);
+                buffered.mark(SNIFF_BYTES);
+                byte[] head = buffered.readNBytes(SNIFF_BYTES);
+                buffered.reset();
+                cs = sniff(head, buffered);
+                source = buffered;
+            }
+            Page page = new Extractor(url).run(new InputStreamReader(source, cs));
+            return new Page(page.title, page.text, page.links, in.count, in.truncated);
+        }
+    }
+
+    /** 直接擷取字串形式的 HTML (benchmark 與測試用) */
+    public static Page extract(String html, String url) {
+        try {
+            Page page = new Extractor(url).run(new StringReader(html));
+            return new Page(page.title, page.text, page.links, html.length(), false);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** 由已解析的 DOM 取出相同的內容 */
+    public static Page fromDocument(Document doc, long bytes, boolean truncated) {
+        String host = UrlFrontier.hostOf(doc.location());
+        List<Link> links = new ArrayList<>();
+        for (Element a : doc.select("a[href]")) {
+            String url = a.attr("abs:href");
+            if (containsIgnoreCase(url, host)) links.add(new Link(url, a.text()));
+        }
+        String text = doc.body() != null ? doc.body().text() : "";
+        return new Page(doc.title(), text, links, bytes, truncated);
+    }
+
+    // 不支援的編碼視為沒有標示
+    private static Charset supported(String charset) {
+        try {
+            if (charset != null) return Charset.forName(charset);
+        } catch (Exception e) {
+            // 交給 sniff 判斷
+        }
+        return null;
+    }
+
+    /** 由開頭的 BOM 或 meta 判斷編碼 (BOM 會從 in 讀掉)，都沒有時為 UTF-8 */
+    private static Charset sniff(byte[] head, InputStream in) throws IOException {
+        if (head.length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            in.readNBytes(3);
+            return StandardCharsets.UTF_8;
+        }
+        if (head.length >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF) {
+            in.readNBytes(2);
+            return StandardCharsets.UTF_16BE;
+        }
+        if (head.length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) {
+            in.readNBytes(2);
+            return StandardCharsets.UTF_16LE;
+        }
+        Charset meta = supported(metaCharset(new String(head, StandardCharsets.ISO_8859_1)));
+        // 位元組已經是 ASCII 相容的編碼才讀得到 meta，宣告 UTF-16 的一定是錯的 (瀏覽器也改用 UTF-8)
+        if (meta == null || meta.name().startsWith("UTF-16")) return StandardCharsets.UTF_8;
+        return meta;
+    }
+
+    /**
+     * &lt;meta charset="big5"&gt; 或 &lt;meta http-equiv="Content-Type" content="text/html; charset=big5"&gt;
+     * 中的編碼名稱，沒有時為 null。gb2312 與瀏覽器一樣當成 GBK。
+     */
+    private static String metaCharset(String head) {
+        String lower = head.toLowerCase(Locale.ROOT);
+        int tag = 0;
+        while ((tag = lower.indexOf("<meta", tag)) >= 0) {
+            int end = lower.indexOf('>', tag);
+            if (end < 0) end = lower.length();
+            int i = lower.indexOf("charset", tag);
+            if (i >= 0 && i < end) {
+                i += "charset".length();
+                while (i < end && (lower.charAt(i) == ' ' || lower.charAt(i) == '=' || lower.charAt(i) == '"'
+                        || lower.charAt(i) == '\'')) i++;
+                int start = i;
+                while (i < end && (Character.isLetterOrDigit(lower.charAt(i)) || "-_.:".indexOf(lower.charAt(i)) >= 0)) i++;
+                if (i > start) {
+                    String name = lower.substring(start, i);
+                    return name.equals("gb2312") ? "GBK" : name;
+                }
+            }
+            tag = end;
+        }
+        return null;
+    }
+
+    // url 是否包含 host (不分大小寫)；只是粗略篩選，精確的同網站判斷在 Ranker.processSubPages
+    private static boolean containsIgnoreCase(String url, String host) {
+        int n = host.length();
+        for (int i = 0; i + n <= url.length(); i++) {
+            if (url.regionMatches(true, i, host, 0, n)) return true;
+        }
+        return false;
+    }
+
+    /** 單次擷取的狀態，逐字讀取 */
+    private static class Extractor {
+        private final String host;
+        private URL base;
+
+        private Reader reader;
+        private final char[] buf = new char[8192];
+        private int pos;
+        private int limit;
+        private int pushedBack = -2;
+
+        private final TextBuffer text = new TextBuffer();
+        private String title;
+        private final List<Link> links = new ArrayList<>();
+        private boolean inHead;
+
+        // 目前開啟中的 <a href>
+        private String anchorUrl;
+        private TextBuffer anchorText;
+
+        Extractor(String url) {
+            this.host = UrlFrontier.hostOf(url);
+            try {
+                this.base = new URL(url);
+            } catch (MalformedURLException e) {
+                this.base = null;
+            }
+        }
+
+        Page run(Reader reader) throws IOException {
+            this.reader = reader;
+            int c;
+            while ((c = next()) != -1) {
+                if (c == '<') {
+                    markup();
+                } else if (c == '&') {
+                    appendText(entity());
+                } else {
+                    appendText((char) c);
+                }
+            }
+            closeAnchor();
+            return new Page(title != null ? title : "", text.toString(), Collections.unmodifiableList(links), 0, false);
+        }
+
+        private void markup() throws IOException {
+            int c = next();
+            if (c == '!') {
+                // <!-- 註解 --> 或 <!DOCTYPE ...>
+                int d = next();
+                if (d == '>' || d == -1) return;
+                if (d == '-') {
+                    int e = next();
+                    if (e == '-') {
+                        skipPast("-->");
+                        return;
+                    }
+                    if (e == '>' || e == -1) return;
+                }
+                skipPast(">");
+            } else if (c == '?') {
+                skipPast(">");
+            } else if (c == '/') {
+                int d = next();
+                push(d);
+                if (!isAsciiLetter(d)) {
+                    skipPast(">");
+                    return;
+                }
+                String name = tagName();
+                skipPast(">");
+                endTag(name);
+            } else if (isAsciiLetter(c)) {
+                push(c);
+                String name = tagName();
+                startTag(name);
+            } else {
+                // 不是標籤，當成一般文字
+                appendText('<');
+                push(c);
+            }
+        }
+
+        private void startTag(String name) throws IOException {
+            String href = attributes("a".equals(name) || "base".equals(name));
+
+            if (inHead && !HEAD_TAGS.contains(name)) inHead = false;
+
+            if ("head".equals(name)) {
+                inHead = true;
+            } else if ("body".equals(name)) {
+                inHead = false;
+            } else if ("title".equals(name)) {
+                String raw = readUntilEndTag("title");
+                if (title == null) title = normalize(raw.indexOf('&') < 0 ? raw : unescape(raw, false));
+                return;
+            } else if (SKIPPED_TAGS.contains(name)) {
+                boolean block = BLOCK_TAGS.contains(name);
+                if (block) blockBoundary();
+                readUntilEndTag(name);
+                if (block) blockBoundary();
+                return;
+            } else if ("base".equals(name)) {
+                if (href != null) base = resolveUrl(href);
+                return;
+            } else if ("a".equals(name)) {
+                closeAnchor();
+                if (href != null) {
+                    URL resolved = resolveUrl(href);
+                    anchorUrl = resolved != null ? resolved.toExternalForm() : "";
+                    anchorText = new TextBuffer();
+                }
+                return;
+            }
+
+            if (BLOCK_TAGS.contains(name)) blockBoundary();
+        }
+
+        private void endTag(String name) {
+            if ("head".equals(name)) {
+                inHead = false;
+            } else if ("a".equals(name)) {
+                closeAnchor();
+            } else if (BLOCK_TAGS.contains(name)) {
+                blockBoundary();
+            }
+        }
+
+        private void closeAnchor() {
+            if (anchorUrl == null) return;
+            if (containsIgnoreCase(anchorUrl, host)) links.add(new Link(anchorUrl, anchorText.toString()));
+            anchorUrl = null;
+            anchorText = null;
+        }
+
+        // 讀到 '>' 為止；wantHref 時回傳 href 屬性 (已解碼)，沒有則回傳 null
+        private String attributes(boolean wantHref) throws IOException {
+            String href = null;
+            while (true) {
+                int c = next();
+                while (c != -1 && isWhitespace(c)) c = next();
+                if (c == -1 || c == '>') return href;
+                if (c == '/') continue;
+
+                StringBuilder name = new StringBuilder();
+                while (c != -1 && !isWhitespace(c) && c != '=' && c != '>' && c != '/') {
+                    name.append(Character.toLowerCase((char) c));
+                    c = next();
+                }
+                while (c != -1 && isWhitespace(c)) c = next();
+                if (c != '=') {
+                    push(c);
+                    continue;
+                }
+
+                c = next();
+                while (c != -1 && isWhitespace(c)) c = next();
+                StringBuilder value = new StringBuilder();
+                if (c == '"' || c == '\'') {
+                    int quote = c;
+                    while ((c = next()) != -1 && c != quote) value.append((char) c);
+                } else {
+                    while (c != -1 && !isWhitespace(c) && c != '>') {
+                        value.append((char) c);
+                        c = next();
+                    }
+                    push(c);
+                }
+                // 重複的屬性以第一個為準
+                if (wantHref && href == null && "href".contentEquals(name)) {
+                    String v = value.toString();
+                    href = v.indexOf('&') < 0 ? v : unescape(v, true);
+                }
+            }
+        }
+
+        private String tagName() throws IOException {
+            StringBuilder name = new StringBuilder();
+            int c;
+            while ((c = next()) != -1 && !isWhitespace(c) && c != '>' && c != '/') {
+                name.append(Character.toLowerCase((char) c));
+            }
+            push(c);
+            return name.toString();
+        }
+
+        // 略過到 </name> (不分大小寫) 為止，回傳中間的原始內容
+        private String readUntilEndTag(String name) throws IOException {
+            String end = "</" + name;
+            StringBuilder raw = new StringBuilder();
+            int matched = 0;
+            int c;
+            while ((c = next()) != -1) {
+                if (Character.toLowerCase((char) c) == end.charAt(matched)) {
+                    if (++matched == end.length()) {
+                        skipPast(">");
+                        raw.setLength(raw.length() - (end.length() - 1));
+                        return raw.toString();
+                    }
+                } else {
+                    matched = Character.toLowerCase((char) c) == '<' ? 1 : 0;
+                }
+                raw.append((char) c);
+            }
+            return raw.toString();
+        }
+
+        private void skipPast(String terminator) throws IOException {
+            int matched = 0;
+            int c;
+            while ((c = next()) != -1) {
+                if (c == terminator.charAt(matched)) {
+                    if (++matched == terminator.length()) return;
+                } else {
+                    matched = c == terminator.charAt(0) ? 1 : 0;
+                }
+            }
+        }
+
+        // '&' 之後的字元參照；無法辨識時保留原文
+        private String entity() throws IOException {
+            StringBuilder name = new StringBuilder();
+            int c;
+            while ((c = next()) != -1 && name.length() < 32 && (Character.isLetterOrDigit(c) || c == '#')) {
+                name.append((char) c);
+            }
+            boolean terminated = c == ';';
+            if (!terminated) push(c);
+            return decodeEntity(name.toString(), terminated, false);
+        }
+
+        private URL resolveUrl(String href) {
+            String spec = href.trim();
+            // 有 scheme 的才當絕對網址解析，避免相對網址每次都丟出例外
+            if (hasScheme(spec)) {
+                try {
+                    return new URL(spec);
+                } catch (MalformedURLException e) {
+                    return null;
+                }
+            }
+            if (base == null) return null;
+            try {
+                return new URL(base, spec);
+            } catch (MalformedURLException e) {
+                return null;
+            }
+        }
+
+        private void appendText(String s) {
+            for (int i = 0; i < s.length(); i++) appendText(s.charAt(i));
+        }
+
+        private void appendText(char c) {
+            if (inHead) return;
+            text.append(c);
+            if (anchorText != null) anchorText.append(c);
+        }
+
+        private void blockBoundary() {
+            if (inHead) return;
+            text.space();
+            if (anchorText != null) anchorText.space();
+        }
+
+        private int next() throws IOException {
+            if (pushedBack != -2) {
+                int c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            if (pos == limit) {
+                limit = reader.read(buf, 0, buf.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buf[pos++];
+        }
+
+        private void push(int c) {
+            pushedBack = c;
+        }
+
+        private static boolean hasScheme(String spec) {
+            for (int i = 0; i < spec.length(); i++) {
+                char c = spec.charAt(i);
+                if (c == ':') return i > 0;
+                if (!(isAsciiLetter(c) || (i > 0 && (Character.isDigit(c) || c == '+' || c == '-' || c == '.')))) return false;
+            }
+            return false;
+        }
+
+        private static boolean isAsciiLetter(int c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+
+        private static boolean isWhitespace(int c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+        }
+
+        private static String normalize(String s) {
+            TextBuffer t = new TextBuffer();
+            for (int i = 0; i < s.length(); i++) t.append(s.charAt(i));
+            return t.toString();
+        }
+    }
+
+    // 解碼字串中的字元參照 (標題與屬性值用)
+    private static String unescape(String s, boolean inAttribute) {
+        StringBuilder out = new StringBuilder(s.length());
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i++);
+            if (c != '&') {
+                out.append(c);
+                continue;
+            }
+            int start = i;
+            while (i < s.length() && i - start < 32 && (Character.isLetterOrDigit(s.charAt(i)) || s.charAt(i) == '#')) i++;
+            String name = s.substring(start, i);
+            boolean terminated = i < s.length() && s.charAt(i) == ';';
+            if (terminated) i++;
+            out.append(decodeEntity(name, terminated, inAttribute));
+        }
+        return out.toString();
+    }
+
+    /**
+     * 字元參照 (不含 '&' 與 ';') 解碼，規則同 Jsoup：
+     * 有分號的具名參照都認得；沒有分號時只認 HTML4 的基本參照 (屬性值中則不解碼)。
+     */
+    private static String decodeEntity(String name, boolean terminated, boolean inAttribute) {
+        String raw = "&" + name + (terminated ? ";" : "");
+        if (name.isEmpty()) return raw;
+
+        if (name.charAt(0) == '#') {
+            boolean hex = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X');
+            String digits = name.substring(hex ? 2 : 1);
+            try {
+                int cp = Integer.parseInt(digits, hex ? 16 : 10);
+                if (cp == 0 || (cp >= 0xD800 && cp <= 0xDFFF) || cp > Character.MAX_CODE_POINT) return "\uFFFD";
+                return new String(Character.toChars(cp));
+            } catch (NumberFormatException e) {
+                return raw;
+            }
+        }
+
+        if (terminated ? Entities.isNamedEntity(name) : (!inAttribute && Entities.isBaseNamedEntity(name))) {
+            return Entities.getByName(name);
+        }
+        return raw;
+    }
+
+    /** 與 Jsoup text() 相同的空白處理：連續空白 (含 &amp;nbsp;) 合併成一個，前後不留空白 */
+    private static class TextBuffer {
+        private final StringBuilder sb = new StringBuilder();
+        private boolean pendingSpace;
+
+        void append(char c) {
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u00A0') {
+                space();
+                return;
+            }
+            if (pendingSpace) sb.append(' ');
+            pendingSpace = false;
+            sb.append(c);
+        }
+
+        void space() {
+            if (sb.length() > 0) pendingSpace = true;
+        }
+
+        @Override
+        public String toString() {
+            return sb.toString();
+        }
+    }
+
+    /** 計算讀取量，超過上限時當作檔案結束 */
+    private static class CappedInputStream extends FilterInputStream {
+        private final long max;
+        long count;
+        boolean truncated;
+
+        CappedInputStream(InputStream in, long max) {
+            super(in);
+            this.max = max;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (count >= max) {
+                if (!truncated && super.read() != -1) truncated = true;
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (count >= max) {
+                // 剛好讀滿時再試一次，確認後面是否還有資料
+                if (!truncated && super.read() != -1) truncated = true;
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, max - count));
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return 0;
+        }
+    }
+}
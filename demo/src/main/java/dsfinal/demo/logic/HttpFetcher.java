@@ -0,0 +1,59 @@
+package dsfinal.demo.logic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 經由 HttpGateway 下載網頁，再以 HtmlExtractor 擷取內容。
+ * 下載是非同步的，擷取在自己的執行緒池進行，不占用 HTTP 用戶端的執行緒。
+ */
+public class HttpFetcher implements Fetcher {
+
+    private final HttpGateway http;
+    private final long maxPageBytes;
+    private final boolean streaming;
+    private final ExecutorService extractExecutor;
+
+    /**
+     * @param maxPageBytes 每個網頁最多讀取的位元組數
+     * @param streaming    true 邊讀邊擷取 (不建立 DOM)，false 用 Jsoup 完整解析
+     * @param threads      擷取用的執行緒數
+     */
+    public HttpFetcher(HttpGateway http, long maxPageBytes, boolean streaming, int threads) {
+        this.http = http;
+        this.maxPageBytes = maxPageBytes;
+        this.streaming = streaming;
+        AtomicInteger count = new AtomicInteger();
+        this.extractExecutor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "crawler-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Result> fetch(String url, Map<String, String> headers, long timeoutMs) {
+        return http.get(url, headers, timeoutMs, maxPageBytes).thenApplyAsync(res -> {
+            HtmlExtractor.Page page = null;
+            if (res.status() == 200 && res.isHtml()) {
+                try {
+                    page = HtmlExtractor.read(res.body(), res.charset(), res.url(), maxPageBytes, streaming);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            // 下載時就被截斷的頁面，擷取端看不到多餘的內容，兩者都要算
+            boolean truncated = res.truncated() || (page != null && page.truncated);
+            return new Result(res.status(), res.url(), res.header("ETag"), res.header("Last-Modified"), page, truncated);
+        }, extractExecutor);
+    }
+
+    public void shutdown() {
+        extractExecutor.shutdownNow();
+    }
+}
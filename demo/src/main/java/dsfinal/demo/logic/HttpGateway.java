@@ -0,0 +1,338 @@
+package dsfinal.demo.logic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 所有對外 HTTP 請求 (Google、網頁爬取、翻譯) 共用的非同步用戶端。
+ *
+ * - 共用一個 java.net.http.HttpClient：連線保持 (keep-alive) 並重複使用，支援時走 HTTP/2
+ * - 每個網站同時進行的請求數有上限，超過的排隊等待，不占用執行緒
+ * - 要求 gzip/deflate 壓縮並自動解壓 (JDK 沒有 brotli 解碼器，因此不宣告 br)
+ * - 回應內容讀到 maxBytes 為止，超過的部分不下載
+ */
+public class HttpGateway {
+
+    public static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+
+    // 沒有指定上限時 (API 回應) 最多讀取的位元組數
+    private static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final int maxPerHost;
+    private final Map<String, HostLimiter> hosts = new ConcurrentHashMap<>();
+
+    public HttpGateway() {
+        this(6, 2000, true);
+    }
+
+    public HttpGateway(int maxPerHost, long connectTimeoutMs, boolean http2) {
+        this.maxPerHost = Math.max(1, maxPerHost);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "http-client-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * 非同步 GET。timeoutMs 是整個請求 (含下載內容) 的期限；
+     * 非 2xx 的狀態碼也會正常回傳，由呼叫端判斷。
+     */
+    public CompletableFuture<Response> get(String url, Map<String, String> headers, long timeoutMs, long maxBytes) {
+        HttpRequest request;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(toUri(url))
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .header("User-Agent", USER_AGENT)
+                    .header("Accept-Encoding", "gzip, deflate")
+                    .GET();
+            headers.forEach(builder::header);
+            request = builder.build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        HostLimiter limiter = hosts.computeIfAbsent(request.uri().getHost() == null ? "" : request.uri().getHost().toLowerCase(Locale.ROOT),
+                h -> new HostLimiter());
+        limiter.submit(maxPerHost, () -> {
+            if (result.isDone()) {
+                limiter.release();
+                return;
+            }
+            CappedBody[] body = new CappedBody[1];
+            client.sendAsync(request, info -> body[0] = new CappedBody(maxBytes))
+                    .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((res, err) -> {
+                        limiter.release();
+                        if (err != null) {
+                            if (body[0] != null) body[0].cancel();
+                            result.completeExceptionally(err);
+                        } else {
+                            result.complete(new Response(res, body[0].truncated));
+                        }
+                    });
+        });
+        return result;
+    }
+
+    /** 取得 2xx 回應的文字內容，其他狀態碼視為失敗 */
+    public CompletableFuture<String> getString(String url, long timeoutMs) {
+        return get(url, Map.of(), timeoutMs, DEFAULT_MAX_BYTES).thenApply(res -> {
+            if (res.status() / 100 != 2) throw new IllegalStateException("HTTP " + res.status() + ": " + url);
+            return res.bodyString();
+        });
+    }
+
+    /** 查詢參數的 URL 編碼 (空白編成 %20) */
+    public static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // 爬到的網址可能含有空白或非 ASCII 字元，URI.create 不接受時再逐段編碼
+    private static URI toUri(String url) throws Exception {
+        try {
+            return URI.create(url);
+        } catch (IllegalArgumentException e) {
+            URL u = new URL(url);
+            return new URI(u.getProtocol(), u.getUserInfo(), u.getHost(), u.getPort(), u.getPath(), u.getQuery(), u.getRef());
+        }
+    }
+
+    public static class Response {
+        private final HttpResponse<byte[]> raw;
+        private final boolean truncated;
+
+        Response(HttpResponse<byte[]> raw, boolean truncated) {
+            this.raw = raw;
+            this.truncated = truncated;
+        }
+
+        public int status() {
+            return raw.statusCode();
+        }
+
+        /** 轉址後的最終網址 */
+        public String url() {
+            return raw.uri().toString();
+        }
+
+        public HttpHeaders headers() {
+            return raw.headers();
+        }
+
+        public String header(String name) {
+            return raw.headers().firstValue(name).orElse(null);
+        }
+
+        /** 內容是否因超過上限而截斷 */
+        public boolean truncated() {
+            return truncated;
+        }
+
+        /** Content-Type 標示的編碼，沒有標示時為 null */
+        public String charset() {
+            String type = header("Content-Type");
+            if (type == null) return null;
+            for (String part : type.split(";")) {
+                String p = part.trim();
+                if (p.regionMatches(true, 0, "charset=", 0, 8)) {
+                    return p.substring(8).replace("\"", "").replace("'", "").trim();
+                }
+            }
+            return null;
+        }
+
+        /** 是否為 HTML/文字內容 (與 Jsoup 接受的類型相同) */
+        public boolean isHtml() {
+            String type = header("Content-Type");
+            if (type == null) return true;
+            String t = type.toLowerCase(Locale.ROOT);
+            return t.startsWith("text/") || t.startsWith("application/xml") || t.contains("+xml");
+        }
+
+        /** 解壓後的內容；截斷的壓縮資料讀到斷點為止 */
+        public InputStream body() throws IOException {
+            InputStream in = new ByteArrayInputStream(raw.body());
+            String encoding = header("Content-Encoding");
+            if (encoding == null) return in;
+            switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+                case "gzip":
+                case "x-gzip":
+                    return new TruncationTolerantStream(new GZIPInputStream(in));
+                case "deflate":
+                    return new TruncationTolerantStream(new InflaterInputStream(in));
+                default:
+                    return in;
+            }
+        }
+
+        public String bodyString() {
+            try (InputStream in = body()) {
+                Charset cs;
+                try {
+                    cs = charset() != null ? Charset.forName(charset()) : StandardCharsets.UTF_8;
+                } catch (Exception e) {
+                    cs = StandardCharsets.UTF_8;
+                }
+                return new String(in.readAllBytes(), cs);
+            } catch (IOException e) {
+                throw new IllegalStateException("讀取回應失敗", e);
+            }
+        }
+    }
+
+    /** 同一網站的併發上限，超過的請求排隊，前一個完成時才送出 */
+    private static class HostLimiter {
+        private int active;
+        private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+
+        void submit(int max, Runnable task) {
+            synchronized (this) {
+                if (active >= max) {
+                    waiting.add(task);
+                    return;
+                }
+                active++;
+            }
+            task.run();
+        }
+
+        void release() {
+            Runnable next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) active--;
+            }
+            if (next != null) next.run();
+        }
+    }
+
+    /** 讀到 maxBytes 為止的 body，之後取消下載 */
+    private static class CappedBody implements HttpResponse.BodySubscriber<byte[]> {
+        private final long maxBytes;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+        volatile boolean truncated;
+
+        CappedBody(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            s.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer buffer : items) {
+                long remaining = maxBytes - out.size();
+                if (buffer.remaining() > remaining) {
+                    byte[] part = new byte[(int) remaining];
+                    buffer.get(part);
+                    out.write(part, 0, part.length);
+                    truncated = true;
+                    subscription.cancel();
+                    result.complete(out.toByteArray());
+                    return;
+                }
+                byte[] chunk = new byte[buffer.remaining()];
+                buffer.get(chunk);
+                out.write(chunk, 0, chunk.length);
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            result.completeExceptionally(t);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(out.toByteArray());
+        }
+
+        void cancel() {
+            Flow.Subscription s = subscription;
+            if (s != null) s.cancel();
+            result.completeExceptionally(new HttpTimeoutException("request cancelled"));
+        }
+    }
+
+    /** 截斷的壓縮資料在結尾會丟出 EOFException，視為正常結束 */
+    private static class TruncationTolerantStream extends FilterInputStream {
+        TruncationTolerantStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (EOFException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (EOFException e) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package dsfinal.demo.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 爬取過的網頁的本機倒排索引。
+ *
+ * - 詞典：term -> postings
+ * - postings：(docId 差值, 詞頻) 以 variable-byte 編碼壓縮
+ * - 儲存欄位：url、title、content
+ *
+ * 查詢以 BM25 計分。同一個 url 再次加入時，標題與內文都沒變就略過，否則舊文件標記為刪除；
+ * 刪除的文件超過一半時重建 postings，只留下有效的文件。
+ * 讀寫以 ReadWriteLock 保護，可多執行緒同時查詢。
+ */
+public class InvertedIndex {
+
+    // BM25 參數
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // 文件數少於此值時不重建，避免少量文件反覆重建
+    private static final int MIN_COMPACT_DOCS = 64;
+
+    private final Map<String, Postings> dictionary = new HashMap<>();
+    private final List<StoredDoc> docs = new ArrayList<>();
+    private final Map<String, Integer> urlToDoc = new HashMap<>();
+    private long totalLength = 0;
+    private int liveCount = 0;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 回傳是否真的加入；同一個 url 的標題與內文都沒變時不做任何事 */
+    public boolean add(String url, String title, String content) {
+        lock.readLock().lock();
+        try {
+            if (unchanged(url, title, content)) return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<String> tokens = tokenize(title + " " + content);
+        Map<String, Integer> tf = new HashMap<>();
+        for (String t : tokens) tf.merge(t, 1, Integer::sum);
+
+        lock.writeLock().lock();
+        try {
+            if (unchanged(url, title, content)) return false;
+            Integer old = urlToDoc.get(url);
+            if (old != null) {
+                StoredDoc prev = docs.get(old);
+                prev.deleted = true;
+                totalLength -= prev.length;
+                liveCount--;
+                // 已刪除的文件不再計入 df，否則 idf 會隨著重複加入變成負數
+                for (String term : new HashSet<>(tokenize(prev.title + " " + prev.content))) {
+                    dictionary.get(term).docFreq--;
+                }
+            }
+            index(new StoredDoc(url, title, content, tokens.size()), tf);
+            if (docs.size() >= MIN_COMPACT_DOCS && docs.size() > liveCount * 2) compact();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean unchanged(String url, String title, String content) {
+        Integer old = urlToDoc.get(url);
+        if (old == null) return false;
+        StoredDoc prev = docs.get(old);
+        return prev.title.equals(title) && prev.content.equals(content);
+    }
+
+    private void index(StoredDoc doc, Map<String, Integer> tf) {
+        int docId = docs.size();
+        docs.add(doc);
+        urlToDoc.put(doc.url, docId);
+        totalLength += doc.length;
+        liveCount++;
+
+        for (Map.Entry<String, Integer> e : tf.entrySet()) {
+            dictionary.computeIfAbsent(e.getKey(), k -> new Postings()).add(docId, e.getValue());
+        }
+    }
+
+    // 丟掉已刪除的文件，重新編號並重建 postings (只保存原文，需重新切詞)
+    private void compact() {
+        List<StoredDoc> live = new ArrayList<>(liveCount);
+        for (StoredDoc doc : docs) {
+            if (!doc.deleted) live.add(doc);
+        }
+        dictionary.clear();
+        docs.clear();
+        urlToDoc.clear();
+        totalLength = 0;
+        liveCount = 0;
+        for (StoredDoc doc : live) {
+            Map<String, Integer> tf = new HashMap<>();
+            for (String t : tokenize(doc.title + " " + doc.content)) tf.merge(t, 1, Integer::sum);
+            index(doc, tf);
+        }
+    }
+
+    public boolean contains(String url) {
+        lock.readLock().lock();
+        try {
+            return urlToDoc.containsKey(url);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 目前保存的文件數，包含已刪除但還沒重建掉的 */
+    public int storedCount() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 所有有效文件 (score 為 0)，供改寫資料檔使用 */
+    public List<Hit> documents() {
+        lock.readLock().lock();
+        try {
+            List<Hit> result = new ArrayList<>(liveCount);
+            for (StoredDoc doc : docs) {
+                if (!doc.deleted) result.add(new Hit(doc, 0));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 以 BM25 查詢，回傳分數最高的 limit 筆 */
+    public List<Hit> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0 || terms.isEmpty()) return new ArrayList<>();
+
+            double avgLength = Math.max(1.0, (double) totalLength / liveCount);
+            double[] scores = new double[docs.size()];
+            boolean[] touched = new boolean[docs.size()];
+
+            for (String term : terms) {
+                Postings postings = dictionary.get(term);
+                if (postings == null) continue;
+                double idf = Math.log(1 + (liveCount - postings.docFreq + 0.5) / (postings.docFreq + 0.5));
+
+                PostingsReader reader = postings.reader();
+                while (reader.next()) {
+                    StoredDoc doc = docs.get(reader.docId);
+                    if (doc.deleted) continue;
+                    double tf = reader.freq;
+                    double norm = K1 * (1 - B + B * doc.length / avgLength);
+                    scores[reader.docId] += idf * tf * (K1 + 1) / (tf + norm);
+                    touched[reader.docId] = true;
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>();
+            for (int i = 0; i < scores.length; i++) {
+                if (touched[i]) hits.add(new Hit(docs.get(i), scores[i]));
+            }
+            hits.sort((a, b) -> Double.compare(b.score, a.score));
+            return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 切詞：拉丁、阿拉伯等以空白分隔的語言取連續字母數字為一個詞；
+     * 中日韓文字沒有空白，改取相鄰兩字 (bigram)，單獨一字時取單字。
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        StringBuilder word = new StringBuilder();
+        int cjkStart = -1;
+        String lower = text.toLowerCase();
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            boolean cjk = isCjk(c);
+            boolean letter = !cjk && Character.isLetterOrDigit(c);
+
+            if (!cjk && cjkStart >= 0) {
+                addCjkTokens(lower, cjkStart, i, tokens);
+                cjkStart = -1;
+            }
+            if (!letter && word.length() > 0) {
+                tokens.add(word.toString());
+                word.setLength(0);
+            }
+
+            if (cjk && cjkStart < 0) cjkStart = i;
+            if (letter) word.append(c);
+        }
+        return tokens;
+    }
+
+    private static void addCjkTokens(String text, int start, int end, List<String> tokens) {
+        if (end - start == 1) {
+            tokens.add(text.substring(start, end));
+            return;
+        }
+        for (int i = start; i + 2 <= end; i++) {
+            tokens.add(text.substring(i, i + 2));
+        }
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+            || block == Character.UnicodeBlock.HIRAGANA
+            || block == Character.UnicodeBlock.KATAKANA
+            || block == Character.UnicodeBlock.HANGUL_SYLLABLES;
+    }
+
+    public static class Hit {
+        public final String url;
+        public final String title;
+        public final String content;
+        public final double score;
+
+        Hit(StoredDoc doc, double score) {
+            this.url = doc.url;
+            this.title = doc.title;
+            this.content = doc.content;
+            this.score = score;
+        }
+    }
+
+    private static class StoredDoc {
+        final String url;
+        final String title;
+        final String content;
+        final int length;
+        boolean deleted;
+
+        StoredDoc(String url, String title, String content, int length) {
+            this.url = url;
+            this.title = title;
+            this.content = content;
+            this.length = length;
+        }
+    }
+
+    // 壓縮的 postings list：docId 遞增，只存差值
+    private static class Postings {
+        byte[] data = new byte[8];
+        int size;
+        int lastDocId;
+        // 包含這個詞、且未刪除的文件數
+        int docFreq;
+
+        void add(int docId, int freq) {
+            writeVInt(docId - lastDocId);
+            writeVInt(freq);
+            lastDocId = docId;
+            docFreq++;
+        }
+
+        private void writeVInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        private void put(byte b) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = b;
+        }
+
+        PostingsReader reader() {
+            return new PostingsReader(this);
+        }
+    }
+
+    private static class PostingsReader {
+        final Postings postings;
+        int pos;
+        int docId;
+        int freq;
+
+        PostingsReader(Postings postings) {
+            this.postings = postings;
+        }
+
+        boolean next() {
+            if (pos >= postings.size) return false;
+            docId += readVInt();
+            freq = readVInt();
+            return true;
+        }
+
+        private int readVInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings.data[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package dsfinal.demo.logic;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 相關關鍵字的長期統計：記錄每個查詢詞 (anchor) 在搜尋結果標題中後面接過哪些詞、各幾次，
+ * 每次搜尋都累加進來，建議時不再只看當次的前 10 個標題。
+ *
+ * - 次數存在 Count-Min Sketch，記憶體固定 (約 1MB)，與詞的數量無關
+ * - 每個查詢詞只保留估計次數最高的 TOP_PER_ANCHOR 個候選，查詢詞最多 MAX_ANCHORS 個 (LRU)
+ * - 累計增加量超過 HALVE_AFTER 時全部減半，舊的熱門詞逐漸淡出
+ * - 定期在背景執行緒把快照寫入檔案 (先寫暫存檔再取代)，重新啟動時載入
+ */
+public class KeywordModel {
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 1 << 16;
+    private static final int MAX_ANCHORS = 2000;
+    private static final int TOP_PER_ANCHOR = 48;
+    private static final long HALVE_AFTER = 1L << 20;
+    private static final int SAVE_EVERY = 50;
+    private static final int FORMAT = 0x4B574D01;
+
+    private final File file;
+    private CountMinSketch sketch = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+    // accessOrder = true，最久沒查過的查詢詞先淘汰
+    private final LinkedHashMap<String, HeavyHitters> anchors = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, HeavyHitters> eldest) {
+            return size() > MAX_ANCHORS;
+        }
+    };
+    private long addedSinceHalve;
+    private int observations;
+    // 上次存檔後有沒有新的資料
+    private boolean dirty;
+    private final AtomicBoolean saving = new AtomicBoolean();
+    // 快照約 1MB，不在搜尋請求的執行緒上寫
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "keyword-model-save");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** fileName 為 null 或空字串時只存在記憶體 */
+    public KeywordModel(String fileName) {
+        this.file = fileName == null || fileName.isEmpty() ? null : new File(fileName);
+        load();
+    }
+
+    /** 累加一次搜尋中各候選詞出現的次數 */
+    public void observe(String anchor, StringIntMap counts) {
+        if (anchor.isEmpty() || counts.isEmpty()) return;
+        boolean save;
+        synchronized (this) {
+            HeavyHitters top = anchors.computeIfAbsent(anchor, k -> new HeavyHitters());
+            for (int i = 0; i < counts.size(); i++) {
+                int estimate = sketch.add(key(anchor, counts.key(i)), counts.value(i));
+                top.offer(counts.key(i), estimate);
+                addedSinceHalve += counts.value(i);
+            }
+            if (addedSinceHalve >= HALVE_AFTER) halve();
+            dirty = true;
+            save = file != null && ++observations % SAVE_EVERY == 0;
+        }
+        if (!save) return;
+        try {
+            saver.execute(this::save);
+        } catch (RejectedExecutionException e) {
+            // 已經 close，最後的快照由 close 寫入
+        }
+    }
+
+    /**
+     * 把 counts 換成累積的估計次數：counts 中的詞 (通常是這次搜尋剛 observe 過的) 改為累積值，
+     * 再加入這個查詢詞過去的熱門候選。沒有累積資料時 counts 不變。
+     */
+    public synchronized void addRelated(String anchor, StringIntMap counts) {
+        for (int i = 0; i < counts.size(); i++) {
+            counts.setValue(i, Math.max(counts.value(i), sketch.estimate(key(anchor, counts.key(i)))));
+        }
+        HeavyHitters top = anchors.get(anchor);
+        if (top != null) {
+            for (int i = 0; i < top.size; i++) {
+                if (!counts.containsKey(top.items[i])) counts.put(top.items[i], top.counts[i]);
+            }
+        }
+    }
+
+    /** 各查詢詞與其熱門候選組成的片語 ("查詢詞 候選") 與估計次數，供自動補完預先載入 */
+    public synchronized Map<String, Integer> topPhrases() {
+        Map<String, Integer> result = new HashMap<>();
+        for (Map.Entry<String, HeavyHitters> e : anchors.entrySet()) {
+            HeavyHitters top = e.getValue();
+            for (int i = 0; i < top.size; i++) result.merge(e.getKey() + " " + top.items[i], top.counts[i], Math::max);
+        }
+        return result;
+    }
+
+    public synchronized int estimate(String anchor, String candidate) {
+        return sketch.estimate(key(anchor, candidate));
+    }
+
+    public synchronized int anchorCount() {
+        return anchors.size();
+    }
+
+    private void halve() {
+        sketch.halve();
+        for (HeavyHitters top : anchors.values()) top.halve();
+        anchors.values().removeIf(top -> top.size == 0);
+        addedSinceHalve = 0;
+    }
+
+    // anchor 與候選詞之間以 \0 分隔後做 FNV-1a，再打散位元 (sketch 的每一列用到高低 32 位元)
+    private static long key(String anchor, String candidate) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < anchor.length(); i++) h = (h ^ anchor.charAt(i)) * 0x100000001b3L;
+        h *= 0x100000001b3L; // 分隔字元 \0
+        for (int i = 0; i < candidate.length(); i++) h = (h ^ candidate.charAt(i)) * 0x100000001b3L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** 寫入快照；沒有新資料或已有其他執行緒在寫時直接略過 */
+    public void save() {
+        if (file == null || !saving.compareAndSet(false, true)) return;
+        try {
+            byte[] snapshot;
+            synchronized (this) {
+                if (!dirty) return;
+                dirty = false;
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(SKETCH_DEPTH * SKETCH_WIDTH * 4 + 64 * 1024);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(FORMAT);
+                out.writeLong(addedSinceHalve);
+                sketch.writeTo(out);
+                out.writeInt(anchors.size());
+                for (Map.Entry<String, HeavyHitters> e : anchors.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    e.getValue().writeTo(out);
+                }
+                out.flush();
+                snapshot = bytes.toByteArray();
+            }
+            File tmp = new File(file.getPath() + ".tmp");
+            Files.write(tmp.toPath(), snapshot);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println(">>> 關鍵字模型儲存失敗: " + e.getMessage());
+        } finally {
+            saving.set(false);
+        }
+    }
+
+    private void load() {
+        if (file == null || !file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != FORMAT) {
+                System.err.println(">>> 關鍵字模型格式不符，重新建立: " + file.getName());
+                return;
+            }
+            long added = in.readLong();
+            CountMinSketch loaded = CountMinSketch.readFrom(in);
+            int n = in.readInt();
+            Map<String, HeavyHitters> tops = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                String anchor = in.readUTF();
+                tops.put(anchor, HeavyHitters.readFrom(in));
+            }
+            synchronized (this) {
+                addedSinceHalve = added;
+                sketch = loaded;
+                anchors.putAll(tops);
+            }
+            System.out.println(">>> 載入關鍵字模型 " + file.getName() + "，共 " + anchors.size() + " 個查詢詞");
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(">>> 關鍵字模型讀取失敗，重新建立: " + e.getMessage());
+        }
+    }
+
+    /** 等背景的寫入結束後再寫一次最新的快照 */
+    public void close() {
+        saver.shutdown();
+        try {
+            saver.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        save();
+    }
+
+    // 單一查詢詞的前幾名候選；數量很少，直接線性搜尋
+    private static class HeavyHitters {
+        final String[] items = new String[TOP_PER_ANCHOR];
+        final int[] counts = new int[TOP_PER_ANCHOR];
+        int size;
+
+        void offer(String item, int count) {
+            int min = -1;
+            for (int i = 0; i < size; i++) {
+                if (items[i].equals(item)) {
+                    counts[i] = count;
+                    return;
+                }
+                if (min < 0 || counts[i] < counts[min]) min = i;
+            }
+            if (size < TOP_PER_ANCHOR) {
+                items[size] = item;
+                counts[size++] = count;
+            } else if (count > counts[min]) {
+                items[min] = item;
+                counts[min] = count;
+            }
+        }
+
+        void halve() {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int c = counts[i] >>> 1;
+                if (c == 0) continue;
+                items[kept] = items[i];
+                counts[kept++] = c;
+            }
+            for (int i = kept; i < size; i++) items[i] = null;
+            size = kept;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeUTF(items[i]);
+                out.writeInt(counts[i]);
+            }
+        }
+
+        static HeavyHitters readFrom(DataInputStream in) throws IOException {
+            HeavyHitters top = new HeavyHitters();
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) top.offer(in.readUTF(), in.readInt());
+            return top;
+        }
+    }
+}
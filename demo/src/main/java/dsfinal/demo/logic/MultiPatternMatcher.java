@@ -0,0 +1,247 @@
+package dsfinal.demo.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Aho-Corasick 多字串比對器：一次掃描文字就找出所有出現過的關鍵字，
+ * 取代對每個關鍵字各做一次 String.contains。
+ *
+ * 比對不分大小寫 (逐字元 Character.toLowerCase)，呼叫端不必先把整篇文字轉小寫。
+ * 建立後不可修改，可跨執行緒共用；每次掃描各自使用一個 Scan。
+ */
+public class MultiPatternMatcher {
+
+    private static final int ROOT = 0;
+
+    private final int patternCount;
+
+    // 字元轉移表：以 (節點, 字元) 為 key 的 open addressing 雜湊表
+    private final long[] edgeKeys;
+    private final int[] edgeTargets;
+    private final int edgeMask;
+
+    private final int[] fail;
+    // 沿 fail 鏈往上第一個有輸出的節點 (dictionary suffix link)
+    private final int[] outputLink;
+    private final int[][] outputs;
+    private final int nodeCount;
+
+    // 空字串視為永遠命中 (與 String.contains("") 一致)
+    private final int[] emptyPatterns;
+
+    public MultiPatternMatcher(List<String> patterns) {
+        this.patternCount = patterns.size();
+
+        // 1. 建立 trie
+        List<long[]> edges = new ArrayList<>();
+        List<int[]> outs = new ArrayList<>();
+        outs.add(new int[0]);
+        List<Integer> empties = new ArrayList<>();
+        int nodes = 1;
+
+        EdgeTable table = new EdgeTable();
+        for (int id = 0; id < patterns.size(); id++) {
+            String p = patterns.get(id);
+            if (p.isEmpty()) {
+                empties.add(id);
+                continue;
+            }
+            int node = ROOT;
+            for (int i = 0; i < p.length(); i++) {
+                char c = Character.toLowerCase(p.charAt(i));
+                int next = table.get(node, c);
+                if (next < 0) {
+                    next = nodes++;
+                    table.put(node, c, next);
+                    edges.add(new long[]{node, c, next});
+                    outs.add(new int[0]);
+                }
+                node = next;
+            }
+            int[] prev = outs.get(node);
+            int[] merged = Arrays.copyOf(prev, prev.length + 1);
+            merged[prev.length] = id;
+            outs.set(node, merged);
+        }
+
+        this.nodeCount = nodes;
+        this.edgeKeys = table.keys;
+        this.edgeTargets = table.values;
+        this.edgeMask = table.keys.length - 1;
+        this.outputs = outs.toArray(new int[0][]);
+        this.emptyPatterns = empties.stream().mapToInt(Integer::intValue).toArray();
+
+        // 2. BFS 建立 fail 與 output link
+        this.fail = new int[nodes];
+        this.outputLink = new int[nodes];
+        Arrays.fill(outputLink, -1);
+
+        List<List<long[]>> children = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) children.add(new ArrayList<>());
+        for (long[] e : edges) children.get((int) e[0]).add(e);
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (long[] e : children.get(ROOT)) {
+            int child = (int) e[2];
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (long[] e : children.get(node)) {
+                char c = (char) e[1];
+                int child = (int) e[2];
+                int f = fail[node];
+                while (f != ROOT && step(f, c) < 0) f = fail[f];
+                int target = step(f, c);
+                fail[child] = (target >= 0 && target != child) ? target : ROOT;
+                int fc = fail[child];
+                outputLink[child] = outputs[fc].length > 0 ? fc : outputLink[fc];
+                queue.add(child);
+            }
+        }
+    }
+
+    public int patternCount() {
+        return patternCount;
+    }
+
+    /** 掃描整段文字，回傳命中的關鍵字編號 (依建構時的順序) */
+    public BitSet scan(CharSequence text) {
+        Scan scan = newScan();
+        scan.feed(text);
+        return scan.hits();
+    }
+
+    public Scan newScan() {
+        return new Scan();
+    }
+
+    private int step(int node, char c) {
+        long key = ((long) node << 16) | c;
+        int i = mix(key) & edgeMask;
+        while (true) {
+            long k = edgeKeys[i];
+            if (k == -1) return -1;
+            if (k == key) return edgeTargets[i];
+            i = (i + 1) & edgeMask;
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * 一次掃描的狀態，可分段餵入文字 (例如標題、空白、內文)，
+     * 中途可用 hits() 取得目前為止的結果。
+     */
+    public class Scan {
+        private int state = ROOT;
+        private final BitSet hits = new BitSet(patternCount);
+        // 已回報過的節點，其 output link 鏈也一定回報過，不必再走
+        private final BitSet reported = new BitSet(nodeCount);
+
+        Scan() {
+            for (int id : emptyPatterns) hits.set(id);
+        }
+
+        /** 清除狀態以掃描下一段文字，重複使用同一個 Scan 不必重新配置 */
+        public Scan reset() {
+            state = ROOT;
+            hits.clear();
+            reported.clear();
+            for (int id : emptyPatterns) hits.set(id);
+            return this;
+        }
+
+        public Scan feed(CharSequence text) {
+            return feed(text, 0, text.length());
+        }
+
+        public Scan feed(CharSequence text, int start, int end) {
+            for (int i = start; i < end; i++) {
+                feed(text.charAt(i));
+            }
+            return this;
+        }
+
+        public Scan feed(char raw) {
+            char c = Character.toLowerCase(raw);
+            int s = state;
+            int next;
+            while ((next = step(s, c)) < 0 && s != ROOT) s = fail[s];
+            state = next < 0 ? ROOT : next;
+
+            int node = outputs[state].length > 0 ? state : outputLink[state];
+            while (node > 0 && !reported.get(node)) {
+                reported.set(node);
+                for (int id : outputs[node]) hits.set(id);
+                node = outputLink[node];
+            }
+            return this;
+        }
+
+        public boolean hit(int patternId) {
+            return hits.get(patternId);
+        }
+
+        /** 目前為止的命中結果 (複本) */
+        public BitSet hits() {
+            return (BitSet) hits.clone();
+        }
+    }
+
+    // 建構期間使用的可擴充雜湊表
+    private static class EdgeTable {
+        long[] keys = newKeys(16);
+        int[] values = new int[16];
+        int size;
+
+        int get(int node, char c) {
+            long key = ((long) node << 16) | c;
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != -1) {
+                if (keys[i] == key) return values[i];
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        void put(int node, char c, int target) {
+            if ((size + 1) * 2 > keys.length) grow();
+            insert(((long) node << 16) | c, target);
+            size++;
+        }
+
+        private void insert(long key, int target) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != -1) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = target;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1) insert(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static long[] newKeys(int n) {
+            long[] k = new long[n];
+            Arrays.fill(k, -1);
+            return k;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package dsfinal.demo.logic;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 以 MyMemory 免費翻譯 API 翻譯關鍵字。
+ */
+public class MyMemoryTranslator implements Translator {
+
+    // 翻譯 API 單次請求的期限
+    private static final long TIMEOUT_MS = 2000;
+
+    private final HttpGateway http;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final PipelineMetrics metrics = PipelineMetrics.get();
+
+    public MyMemoryTranslator(HttpGateway http) {
+        this.http = http;
+    }
+
+    @Override
+    public CompletableFuture<String> translate(String text, String targetLang) {
+        String url = "https://api.mymemory.translated.net/get?q=" +
+                HttpGateway.encode(text) + "&langpair=" + HttpGateway.encode("auto|" + targetLang);
+        PipelineMetrics.Span span = metrics.start("translate.mymemory");
+        return http.getString(url, TIMEOUT_MS)
+                .thenApply(resp -> {
+                    try {
+                        JsonNode root = mapper.readTree(resp);
+                        return root.path("responseData").path("translatedText").asText();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .handle((translated, err) -> {
+                    span.close();
+                    if (err != null) {
+                        metrics.increment("translate.mymemory.error");
+                        return null;
+                    }
+                    return translated;
+                });
+    }
+}
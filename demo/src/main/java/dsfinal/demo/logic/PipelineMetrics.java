@@ -0,0 +1,183 @@
+package dsfinal.demo.logic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 搜尋流程各階段的統計：每個階段的延遲直方圖 (p50/p90/p99)、計數器與數值分布，
+ * 由 /api/metrics 輸出。
+ *
+ * Ranker、SemanticAnalyzer 等不是 Spring bean，因此全程式共用 get() 取得的同一份。
+ * 需要單次請求的明細時，呼叫 beginTrace() 後同一執行緒上的 start() 會一併記錄到 Trace；
+ * 在其他執行緒上的工作請把 Trace 明確傳給 start(stage, trace)，或以 inTrace() 包住整段工作。
+ */
+public class PipelineMetrics {
+
+    private static final PipelineMetrics GLOBAL = new PipelineMetrics();
+
+    public static PipelineMetrics get() {
+        return GLOBAL;
+    }
+
+    private final Map<String, LogHistogram> timers = new ConcurrentHashMap<>();
+    private final Map<String, LogHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ThreadLocal<Trace> currentTrace = new ThreadLocal<>();
+
+    /** 開始計時，close() 時記錄；目前執行緒有 Trace 時也會加入 */
+    public Span start(String stage) {
+        return new Span(stage, currentTrace.get());
+    }
+
+    public Span start(String stage, Trace trace) {
+        return new Span(stage, trace);
+    }
+
+    public void recordNanos(String stage, long nanos) {
+        // 以微秒儲存，輸出時換算成毫秒
+        timers.computeIfAbsent(stage, k -> new LogHistogram()).record(nanos / 1000);
+    }
+
+    /** 非時間的數值分布，例如每頁下載的位元組數 */
+    public void recordValue(String name, long value) {
+        histograms.computeIfAbsent(name, k -> new LogHistogram()).record(value);
+    }
+
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    public void add(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    public long counter(String name) {
+        LongAdder adder = counters.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    // ---- 單次請求的追蹤 ----
+
+    public Trace beginTrace() {
+        Trace trace = new Trace();
+        currentTrace.set(trace);
+        return trace;
+    }
+
+    public Trace currentTrace() {
+        return currentTrace.get();
+    }
+
+    public void endTrace() {
+        currentTrace.remove();
+    }
+
+    /** 在目前執行緒上以指定的 Trace 執行 work (非同步的後續步驟用)，結束後還原 */
+    public <T> T inTrace(Trace trace, Supplier<T> work) {
+        Trace previous = currentTrace.get();
+        if (trace == null) currentTrace.remove();
+        else currentTrace.set(trace);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) currentTrace.remove();
+            else currentTrace.set(previous);
+        }
+    }
+
+    /** 目前所有統計的快照，依名稱排序 */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stages = new TreeMap<>();
+        timers.forEach((name, h) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", h.count());
+            m.put("mean_ms", round(h.mean() / 1000.0));
+            m.put("p50_ms", round(h.percentile(0.50) / 1000.0));
+            m.put("p90_ms", round(h.percentile(0.90) / 1000.0));
+            m.put("p99_ms", round(h.percentile(0.99) / 1000.0));
+            m.put("max_ms", round(h.max() / 1000.0));
+            stages.put(name, m);
+        });
+
+        Map<String, Object> values = new TreeMap<>();
+        histograms.forEach((name, h) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", h.count());
+            m.put("sum", h.sum());
+            m.put("mean", round(h.mean()));
+            m.put("p50", h.percentile(0.50));
+            m.put("p99", h.percentile(0.99));
+            m.put("max", h.max());
+            values.put(name, m);
+        });
+
+        Map<String, Object> counts = new TreeMap<>();
+        counters.forEach((name, adder) -> counts.put(name, adder.sum()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("stages", stages);
+        result.put("histograms", values);
+        result.put("counters", counts);
+        return result;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+
+    /** 一個階段的計時，搭配 try-with-resources 使用 */
+    public class Span implements AutoCloseable {
+        private final String stage;
+        private final Trace trace;
+        private final long startNanos = System.nanoTime();
+        private boolean closed;
+
+        private Span(String stage, Trace trace) {
+            this.stage = stage;
+            this.trace = trace;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            long elapsed = System.nanoTime() - startNanos;
+            recordNanos(stage, elapsed);
+            if (trace != null) trace.add(stage, startNanos, elapsed);
+        }
+    }
+
+    /** 單次請求內各階段的開始時間與耗時 (相對於請求開始) */
+    public static class Trace {
+        private final long originNanos = System.nanoTime();
+        private final List<Map<String, Object>> spans = new ArrayList<>();
+
+        void add(String stage, long startNanos, long elapsedNanos) {
+            Map<String, Object> span = new LinkedHashMap<>();
+            span.put("stage", stage);
+            span.put("start_ms", round((startNanos - originNanos) / 1e6));
+            span.put("duration_ms", round(elapsedNanos / 1e6));
+            span.put("thread", Thread.currentThread().getName());
+            synchronized (spans) {
+                spans.add(span);
+            }
+        }
+
+        /** 依開始時間排序的 span 列表 */
+        public List<Map<String, Object>> spans() {
+            List<Map<String, Object>> copy;
+            synchronized (spans) {
+                copy = new ArrayList<>(spans);
+            }
+            copy.sort(Comparator.comparingDouble(s -> (Double) s.get("start_ms")));
+            return copy;
+        }
+    }
+}
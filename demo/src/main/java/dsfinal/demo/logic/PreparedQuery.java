@@ -0,0 +1,101 @@
+package dsfinal.demo.logic;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 預先處理好的查詢：每個關鍵字的翻譯版本在查詢開始時一次取得，
+ * 之後對每個網頁評分時不會再有任何網路呼叫。建立後不可修改，可跨執行緒共用。
+ *
+ * 主題詞、整個查詢與所有關鍵字寫法會編譯成一個 MultiPatternMatcher，
+ * 評分時只需掃描網頁文字一次。
+ */
+public final class PreparedQuery {
+
+    private final String query;
+    private final List<String> keywords;
+    private final List<Set<String>> variants;
+
+    private final MultiPatternMatcher matcher;
+    private final int themeCount;
+    private final int queryPatternId;
+    // 第 i 個關鍵字的寫法在 matcher 中的編號範圍 [variantStart[i], variantStart[i+1])
+    private final int[] variantStart;
+
+    /**
+     * @param userQuery 使用者輸入的查詢
+     * @param translations 小寫關鍵字 -> 翻譯版本 (含關鍵字本身)
+     * @param themeWords 主題詞 (荒野亂鬥、Brawl Stars ...)
+     */
+    public PreparedQuery(String userQuery, Map<String, Set<String>> translations, String[] themeWords) {
+        this.query = userQuery.toLowerCase();
+
+        List<String> kws = new ArrayList<>();
+        List<Set<String>> vars = new ArrayList<>();
+        for (String kw : splitKeywords(query)) {
+            Set<String> v = new LinkedHashSet<>();
+            v.add(kw);
+            Set<String> translated = translations.get(kw);
+            if (translated != null) {
+                for (String t : translated) {
+                    if (!t.isEmpty()) v.add(t);
+                }
+            }
+            kws.add(kw);
+            vars.add(Collections.unmodifiableSet(v));
+        }
+        this.keywords = Collections.unmodifiableList(kws);
+        this.variants = Collections.unmodifiableList(vars);
+
+        List<String> patterns = new ArrayList<>();
+        for (String theme : themeWords) patterns.add(theme.toLowerCase());
+        this.themeCount = patterns.size();
+        this.queryPatternId = patterns.size();
+        patterns.add(query);
+        this.variantStart = new int[vars.size() + 1];
+        for (int i = 0; i < vars.size(); i++) {
+            variantStart[i] = patterns.size();
+            patterns.addAll(vars.get(i));
+        }
+        variantStart[vars.size()] = patterns.size();
+        this.matcher = new MultiPatternMatcher(patterns);
+    }
+
+    // 與評分時相同的切詞方式
+    public static String[] splitKeywords(String lowerQuery) {
+        return lowerQuery.split("\\s+");
+    }
+
+    public String getQuery() { return query; }
+
+    public List<String> getKeywords() { return keywords; }
+
+    public int keywordCount() { return keywords.size(); }
+
+    /** 第 i 個關鍵字的所有寫法，第一個元素是關鍵字本身 */
+    public Set<String> getVariants(int i) { return variants.get(i); }
+
+    public MultiPatternMatcher getMatcher() { return matcher; }
+
+    /** 掃描結果中是否出現任一主題詞 */
+    public boolean hasTheme(BitSet hits) {
+        int next = hits.nextSetBit(0);
+        return next >= 0 && next < themeCount;
+    }
+
+    /** 掃描結果中是否出現完整的查詢字串 */
+    public boolean hasQuery(BitSet hits) {
+        return hits.get(queryPatternId);
+    }
+
+    /** 掃描結果中是否出現第 i 個關鍵字或其任一翻譯 */
+    public boolean hasKeyword(BitSet hits, int i) {
+        int next = hits.nextSetBit(variantStart[i]);
+        return next >= 0 && next < variantStart[i + 1];
+    }
+}
@@ -1,24 +1,16 @@
 package dsfinal.demo.logic;
 
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
-
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.CompletableFuture;
 
 import dsfinal.demo.model.WebPage;
 
@@ -34,66 +26,95 @@ public class Ranker {
         "supercell.com", "gamer.com.tw", "facebook.com", "zh.moegirl.org.cn"
     };
 
-    private final Map<String, Set<String>> translationCache = new HashMap<>();
-    private final ObjectMapper mapper = new ObjectMapper();
+    public static final String DEFAULT_TRANSLATION_CACHE = "translation_cache.tsv";
+
+    // 翻譯快取：最多5000個關鍵字，保存7天
+    private final TranslationCache translationCache;
+    private final PipelineMetrics metrics = PipelineMetrics.get();
+    private final Translator translator;
+
+    // BM25 分數換算成與關鍵字命中分數相近的量級
+    private static final double BM25_WEIGHT = 5.0;
+
+    // 每個網頁最多保留的子網頁數
+    private static final int SUB_PAGE_LIMIT = 3;
+
+    public Ranker(Translator translator, String translationCacheFile) {
+        this.translator = translator;
+        this.translationCache = new TranslationCache(translationCacheFile, 5000, 7L * 24 * 60 * 60 * 1000);
+    }
+
+    /**
+     * 查詢前處理：所有關鍵字的翻譯同時查詢，結果包成 PreparedQuery。
+     */
+    public PreparedQuery prepareQuery(String userQuery) {
+        return prepareQueryAsync(userQuery).join();
+    }
+
+    /** 使用已知的翻譯建立 PreparedQuery，不做網路呼叫 (benchmark 與測試用) */
+    public PreparedQuery prepareQuery(String userQuery, Map<String, Set<String>> translations) {
+        return new PreparedQuery(userQuery, translations, THEME_KEYWORDS);
+    }
+
+    public CompletableFuture<PreparedQuery> prepareQueryAsync(String userQuery) {
+        String query = userQuery.toLowerCase();
+        PipelineMetrics.Trace trace = metrics.currentTrace();
+        Map<String, CompletableFuture<Set<String>>> lookups = new LinkedHashMap<>();
+        for (String keyword : PreparedQuery.splitKeywords(query)) {
+            if (keyword.isEmpty() || lookups.containsKey(keyword)) continue;
+            PipelineMetrics.Span span = metrics.start("translate.keyword", trace);
+            lookups.put(keyword, getTranslations(keyword).whenComplete((v, err) -> span.close()));
+        }
+
+        return CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    Map<String, Set<String>> translations = new HashMap<>();
+                    lookups.forEach((keyword, lookup) -> translations.put(keyword, lookup.join()));
+                    return prepareQuery(userQuery, translations);
+                });
+    }
+
+    public double calculatePageScore(WebPage page, String userQuery, List<HtmlExtractor.Link> links) {
+        return calculatePageScore(page, prepareQuery(userQuery), links);
+    }
 
-    public double calculatePageScore(WebPage page, String userQuery, Document doc) {
+    // 評分過程不做任何網路呼叫，翻譯都已在 PreparedQuery 中；links 為 null 時不處理子網頁
+    public double calculatePageScore(WebPage page, PreparedQuery prepared, List<HtmlExtractor.Link> links) {
+        try (PipelineMetrics.Span span = metrics.start("rank.page")) {
+            return scorePage(page, prepared, links);
+        }
+    }
+
+    private double scorePage(WebPage page, PreparedQuery prepared, List<HtmlExtractor.Link> links) {
         if (page.content == null) page.content = ""; 
         
         double score = 0.0;
 
-        String fullText = (page.title + " " + page.content).toLowerCase();
-        String query = userQuery.toLowerCase();
         String url = page.url.toLowerCase();
-        
-        String titleLower = page.title.toLowerCase();
 
-        // 1. 主題檢查
-        boolean isThemeRelated = false;
-        boolean themeInTitle = false;
-        boolean themeInContent = false;
-        
-        for (String themeWord : THEME_KEYWORDS) {
-            if (titleLower.contains(themeWord.toLowerCase())) {
-                themeInTitle = true;
-                break;
-            }
-        }
-        
-        for (String themeWord : THEME_KEYWORDS) {
-            if (fullText.contains(themeWord.toLowerCase())) {
-                themeInContent = true;
-                break;
-            }
-        }
+        // 一次掃描標題 + 內文，同時找出主題詞與所有關鍵字寫法
+        MultiPatternMatcher.Scan scan = prepared.getMatcher().newScan();
+        scan.feed(page.title);
+        BitSet titleHits = scan.hits();
+        scan.feed(' ').feed(page.content);
+        BitSet fullHits = scan.hits();
 
-        if (themeInTitle && themeInContent) {
-            score += 60.0; // 標題和內文都有
-            isThemeRelated = true;
-        } else if (themeInTitle) {
-            score += 40.0; // 只有標題有
-            isThemeRelated = true;
-        } else if (themeInContent) {
-            score += 10.0; // 只有內文有
-            isThemeRelated = true;
-        } else {
-            score -= 50.0; // 都沒有
-            isThemeRelated = false;
-        }
+        // 1. 主題檢查
+        double themeScore = themeScore(prepared, titleHits, fullHits);
+        boolean isThemeRelated = themeScore > 0;
+        score += themeScore;
 
         // 關鍵字命中計算
-        String[] keywords = query.split("\\s+");
         double keywordScore = 0;
         
-        if (keywords.length > 0) {
-            String firstKeyword = keywords[0];
-            boolean hasFirstKeyword = containsWithTranslations(fullText, firstKeyword);
-            boolean firstInTitle = containsWithTranslations(page.title.toLowerCase(), firstKeyword);
+        if (prepared.keywordCount() > 0) {
+            boolean hasFirstKeyword = prepared.hasKeyword(fullHits, 0);
+            boolean firstInTitle = prepared.hasKeyword(titleHits, 0);
             
             int otherKeywordsMatched = 0;
-            for (int i = 1; i < keywords.length; i++) {
-                if (keywords[i].length() < 1) continue;
-                if (containsWithTranslations(fullText, keywords[i])) {
+            for (int i = 1; i < prepared.keywordCount(); i++) {
+                if (prepared.getKeywords().get(i).length() < 1) continue;
+                if (prepared.hasKeyword(fullHits, i)) {
                     otherKeywordsMatched++;
                 }
             }
@@ -113,21 +134,16 @@ public class Ranker {
         }
 
         // 權威網站加分
-        boolean isAuthority = false;
-        for (String domain : AUTHORITY_DOMAINS) {
-            if (url.contains(domain)) {
-                isAuthority = true;
-                break;
-            }
-        }
-        
-        if (isAuthority && isThemeRelated && keywordScore > 0) {
+        if (isAuthority(url) && isThemeRelated && keywordScore > 0) {
             score += 15.0;
         }
 
         // 子網頁挖掘與評分
-        if (doc != null) {
-            double subPagesBonus = processSubPages(page, doc, query);
+        if (links != null) {
+            double subPagesBonus;
+            try (PipelineMetrics.Span span = metrics.start("rank.subpages")) {
+                subPagesBonus = processSubPages(page, links, prepared);
+            }
             double actualBonus = subPagesBonus * 0.2;
             if (actualBonus > 0) {
                 score += actualBonus;
@@ -139,19 +155,67 @@ public class Ranker {
         return score;
     }
 
-    // 子網頁處理邏輯
-    private double processSubPages(WebPage parentPage, Document doc, String userQuery) {
-        Elements links = doc.select("a[href]");
+    /**
+     * 本機索引結果的評分：以 BM25 取代關鍵字命中分數，
+     * 主題與權威網站加分規則與 calculatePageScore 相同。
+     */
+    public double scoreIndexedPage(WebPage page, PreparedQuery prepared, double bm25) {
+        if (page.content == null) page.content = "";
+
+        MultiPatternMatcher.Scan scan = prepared.getMatcher().newScan();
+        scan.feed(page.title);
+        BitSet titleHits = scan.hits();
+        scan.feed(' ').feed(page.content);
+        BitSet fullHits = scan.hits();
+
+        double themeScore = themeScore(prepared, titleHits, fullHits);
+        double score = themeScore + bm25 * BM25_WEIGHT;
+        if (isAuthority(page.url.toLowerCase()) && themeScore > 0 && bm25 > 0) {
+            score += 15.0;
+        }
+
+        page.scoreDetails = String.format("%.1f", score);
+        page.topicScore = score;
+        return score;
+    }
+
+    private double themeScore(PreparedQuery prepared, BitSet titleHits, BitSet fullHits) {
+        boolean themeInTitle = prepared.hasTheme(titleHits);
+        boolean themeInContent = prepared.hasTheme(fullHits);
+
+        if (themeInTitle && themeInContent) {
+            return 60.0; // 標題和內文都有
+        } else if (themeInTitle) {
+            return 40.0; // 只有標題有
+        } else if (themeInContent) {
+            return 10.0; // 只有內文有
+        }
+        return -50.0; // 都沒有
+    }
+
+    private boolean isAuthority(String urlLower) {
+        for (String domain : AUTHORITY_DOMAINS) {
+            if (urlLower.contains(domain)) return true;
+        }
+        return false;
+    }
+
+    // 子網頁處理邏輯 (package-private 供 benchmark 直接量測)
+    double processSubPages(WebPage parentPage, List<HtmlExtractor.Link> links, PreparedQuery prepared) {
         Set<String> seenUrls = new HashSet<>();
         seenUrls.add(parentPage.url); 
         
-        List<WebPage> candidates = new ArrayList<>();
+        // 只保留分數最高的3個子網頁 (同分依連結順序)，入選的才建立 WebPage
+        TopK best = new TopK(SUB_PAGE_LIMIT);
+        String[] bestUrls = new String[SUB_PAGE_LIMIT];
+        String[] bestTitles = new String[SUB_PAGE_LIMIT];
+        int order = 0;
         String parentDomain = getDomain(parentPage.url);
-        String lowerQuery = userQuery.toLowerCase();
+        MultiPatternMatcher matcher = prepared.getMatcher();
 
-        for (Element link : links) {
-            String subUrl = link.attr("abs:href");
-            String subTitle = link.text().trim();
+        for (HtmlExtractor.Link link : links) {
+            String subUrl = link.url;
+            String subTitle = link.text.trim();
 
             if (subUrl.isEmpty() || subTitle.length() < 2) continue;
             if (seenUrls.contains(subUrl)) continue;
@@ -161,16 +225,9 @@ public class Ranker {
             seenUrls.add(subUrl);
 
             double subScore = 0.0;
-            String lowerTitle = subTitle.toLowerCase();
-            
-            boolean hasTheme = false;
-            for(String theme : THEME_KEYWORDS) {
-                if(lowerTitle.contains(theme.toLowerCase())) {
-                    hasTheme = true;
-                    break; 
-                }
-            }
-            boolean hasKeyword = lowerTitle.contains(lowerQuery);
+            BitSet hits = matcher.scan(subTitle);
+            boolean hasTheme = prepared.hasTheme(hits);
+            boolean hasKeyword = prepared.hasQuery(hits);
 
             if (hasTheme && hasKeyword) {
                 subScore = 20.0; 
@@ -181,17 +238,19 @@ public class Ranker {
             }
 
             if (subScore > 0) {
-                WebPage subPage = new WebPage(subUrl, subTitle);
-                subPage.topicScore = subScore;
-                candidates.add(subPage);
+                // 正數 double 的位元值與數值大小順序相同
+                int slot = best.offer(Double.doubleToLongBits(subScore), order++);
+                if (slot >= 0) {
+                    bestUrls[slot] = subUrl;
+                    bestTitles[slot] = subTitle;
+                }
             }
         }
 
-        Collections.sort(candidates, (a, b) -> Double.compare(b.topicScore, a.topicScore));
-
         double totalBonus = 0.0;
-        for (int i = 0; i < Math.min(3, candidates.size()); i++) {
-            WebPage bestSub = candidates.get(i);
+        for (int slot : best.sortedSlots()) {
+            WebPage bestSub = new WebPage(bestUrls[slot], bestTitles[slot]);
+            bestSub.topicScore = Double.longBitsToDouble(best.score(slot));
             parentPage.subPages.add(bestSub);
             totalBonus += bestSub.topicScore;
         }
@@ -212,33 +271,41 @@ public class Ranker {
         }
     }
 
-    private boolean containsWithTranslations(String textLower, String keywordRaw) {
-        String keyword = keywordRaw.toLowerCase();
-        if (textLower.contains(keyword)) return true;
-        Set<String> variants = getTranslations(keyword);
-        for (String variant : variants) {
-            if (variant.isEmpty()) continue;
-            if (textLower.contains(variant)) return true;
-        }
-        return false;
+    // 翻譯請求都由 Translator 非同步送出，等待回應時不占用任何執行緒
+    private CompletableFuture<Set<String>> getTranslations(String keyword) {
+        String key = keyword.toLowerCase();
+        boolean[] loaded = new boolean[1];
+        return translationCache.getAsync(key, k -> {
+            loaded[0] = true;
+            return fetchTranslations(k);
+        }).handle((variants, err) -> {
+            metrics.increment(loaded[0] ? "translation.cache.miss" : "translation.cache.hit");
+            return variants != null ? variants : Collections.singleton(key);
+        });
     }
 
-    private Set<String> getTranslations(String keyword) {
-        String key = keyword.toLowerCase();
-        if (translationCache.containsKey(key)) return translationCache.get(key);
-        Set<String> variants = new LinkedHashSet<>();
-        variants.add(key);
+    // 各目標語言的翻譯同時查詢；全部失敗時結果為 null，下次再試
+    private CompletableFuture<Set<String>> fetchTranslations(String key) {
         List<String> targets = detectLikelyLangCodes(key);
+        List<CompletableFuture<String>> calls = new ArrayList<>();
         for (String target : targets) {
-            try {
-                String translated = translateViaMyMemory(key, target);
-                if (translated != null && !translated.isEmpty()) {
+            calls.add(translator.translate(key, target));
+        }
+
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).thenApply(v -> {
+            Set<String> variants = new LinkedHashSet<>();
+            variants.add(key);
+            boolean anySuccess = false;
+            for (CompletableFuture<String> call : calls) {
+                String translated = call.join();
+                if (translated == null) continue;
+                anySuccess = true;
+                if (!translated.isEmpty()) {
                     variants.add(translated.toLowerCase());
                 }
-            } catch (Exception ignored) {}
-        }
-        translationCache.put(key, variants);
-        return variants;
+            }
+            return anySuccess ? variants : null;
+        });
     }
 
     private List<String> detectLikelyLangCodes(String text) {
@@ -251,19 +318,4 @@ public class Ranker {
         Collections.addAll(codes, common);
         return new ArrayList<>(codes);
     }
-
-    private String translateViaMyMemory(String text, String targetLang) throws Exception {
-        String urlStr = "https://api.mymemory.translated.net/get?q=" + 
-                java.net.URLEncoder.encode(text, StandardCharsets.UTF_8) + "&langpair=auto|" + targetLang;
-        URL url = new URL(urlStr);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(1000); 
-        conn.setReadTimeout(1000);
-        try (Scanner scanner = new Scanner(conn.getInputStream(), StandardCharsets.UTF_8)) {
-            String resp = scanner.useDelimiter("\\A").next();
-            JsonNode root = mapper.readTree(resp);
-            return root.path("responseData").path("translatedText").asText();
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+package dsfinal.demo.logic;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 外部 API 原始回應的快取：記憶體內為有上限的 TTL LRU，並以 NDJSON 逐行附加到檔案，
+ * 重新啟動時重播檔案即可恢復 (與 TranslationCache 相同的做法)。
+ *
+ * 檔案每行格式：{"key": ..., "createdAt": ..., "body": ...}
+ */
+public class ResponseCache {
+
+    private final File file;
+    private final long ttlMillis;
+    private final TtlLruCache<String, String> cache;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private BufferedWriter writer;
+
+    public ResponseCache(String fileName, int maxSize, long ttlMillis) {
+        this.file = new File(fileName);
+        this.ttlMillis = ttlMillis;
+        this.cache = new TtlLruCache<>(maxSize, ttlMillis);
+        load();
+    }
+
+    public String get(String key) {
+        return cache.get(key);
+    }
+
+    public void put(String key, String body) {
+        long now = System.currentTimeMillis();
+        cache.put(key, body, now);
+        append(key, body, now);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private synchronized void append(String key, String body, long createdAt) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(formatLine(key, body, createdAt));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println(">>> 回應快取寫入失敗: " + e.getMessage());
+        }
+    }
+
+    // 重播檔案；重複的 key 以最後一筆為準，過期或重複的行太多時順便壓縮
+    private void load() {
+        if (!file.exists()) return;
+
+        Map<String, String> latest = new LinkedHashMap<>();
+        int lineCount = 0;
+        long now = System.currentTimeMillis();
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                JsonNode node;
+                try {
+                    node = mapper.readTree(line);
+                } catch (IOException e) {
+                    continue; // 寫到一半的行
+                }
+                String key = node.path("key").asText(null);
+                long createdAt = node.path("createdAt").asLong(0);
+                if (key == null || !node.path("body").isTextual()) continue;
+
+                latest.remove(key);
+                if (ttlMillis > 0 && now - createdAt > ttlMillis) continue;
+                cache.put(key, node.path("body").asText(), createdAt);
+                latest.put(key, line);
+            }
+        } catch (IOException e) {
+            System.err.println(">>> 回應快取讀取失敗: " + e.getMessage());
+            return;
+        }
+
+        System.out.println(">>> 載入回應快取 " + file.getName() + "，共 " + cache.size() + " 筆");
+        if (lineCount > latest.size() * 2) {
+            compact(new ArrayList<>(latest.values()));
+        }
+    }
+
+    private void compact(List<String> lines) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Files.write(tmp.toPath(), lines, StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println(">>> 回應快取壓縮失敗: " + e.getMessage());
+        }
+    }
+
+    private String formatLine(String key, String body, long createdAt) throws IOException {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("key", key);
+        node.put("createdAt", createdAt);
+        node.put("body", body);
+        return mapper.writeValueAsString(node);
+    }
+
+    public synchronized void close() {
+        try {
+            if (writer != null) writer.close();
+        } catch (IOException ignored) {}
+        writer = null;
+    }
+}
@@ -0,0 +1,33 @@
+package dsfinal.demo.logic;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 搜尋引擎來源：Google Custom Search，或離線測試用的重播資料。
+ */
+public interface SearchBackend {
+
+    /**
+     * 非同步查詢，結果為最多 wanted 筆不重複網址的結果 (依來源的原始順序)。
+     * lr 為語言限制 (例如 lang_zh-TW)，null 表示不限制。失敗時 future 以例外結束。
+     */
+    CompletableFuture<List<Hit>> search(String query, String lr, int wanted);
+
+    /** 目前快取的回應數 (給 /api/metrics 使用)，沒有快取時為 0 */
+    default int cacheSize() {
+        return 0;
+    }
+
+    class Hit {
+        public final String title;
+        public final String link;
+        public final String snippet;
+
+        public Hit(String title, String link, String snippet) {
+            this.title = title;
+            this.link = link;
+            this.snippet = snippet;
+        }
+    }
+}
@@ -1,189 +1,242 @@
 package dsfinal.demo.logic;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import dsfinal.demo.model.WebPage;
 
 /**
  * SemanticAnalyzer
+ *
+ * 從搜尋結果標題中找出查詢詞後面常接的詞，組成相關關鍵字建議。
+ * 有 KeywordModel 時，每次找到的候選都累加進長期統計，排序時一併參考過去同一查詢詞的結果。
  */
 public class SemanticAnalyzer {
 
-    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+    private static final int MAX_SUGGESTIONS = 10;
+
+    private static final int TITLE_MEMO_SIZE = 4096;
+
+    private static final StopWordTrie STOP_WORDS = new StopWordTrie(Arrays.asList(
         "的", "是", "在", "有", "與", "和", "了", "對", "也", "及", "等", "或", "之",
         "他", "你", "我", "它", "這", "那", "個", "位", "名", "其", "實", "讓",
         "認", "為", "覺", "得", "顯", "示", "看", "到", "做", "作", "用",
         "the", "is", "of", "in", "to", "for", "a", "an", "on", "at", "by", "and", "or", "it", "with", "from", "about"
     ));
 
+    // 清洗過的標題跨查詢共用
+    private final TitleCleaner titleCleaner = new TitleCleaner(TITLE_MEMO_SIZE);
+
+    private final KeywordModel keywordModel;
+
+    // 每個執行緒重複使用的暫存空間，挖掘候選詞時不再為計數與已用字元配置物件
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+        // 單次候選超過這個數量時不保留，避免一次大查詢讓執行緒一直占著大陣列
+        static final int MAX_RETAINED = 4096;
+
+        StringIntMap freq = new StringIntMap(256);
+        final BitSet usedChars = new BitSet(Character.MAX_VALUE + 1);
+        String[] candidates = new String[256];
+        long[] keys = new long[256];
+
+        void ensureCandidates(int n) {
+            if (candidates.length < n) {
+                candidates = new String[n];
+                keys = new long[n];
+            }
+        }
+
+        void release() {
+            if (freq.size() > MAX_RETAINED) freq = new StringIntMap(256);
+            else freq.clear();
+            if (candidates.length > MAX_RETAINED) {
+                candidates = new String[256];
+                keys = new long[256];
+            } else {
+                Arrays.fill(candidates, null);
+            }
+        }
+    }
+
+    public SemanticAnalyzer() {
+        this(null);
+    }
+
+    public SemanticAnalyzer(KeywordModel keywordModel) {
+        this.keywordModel = keywordModel;
+    }
+
     public List<String> deriveRelatedKeywords(List<WebPage> topPages, String userQuery) {
-        Map<String, Integer> candidateFreq = new HashMap<>();
+        try (PipelineMetrics.Span span = PipelineMetrics.get().start("semantic")) {
+            Scratch scratch = SCRATCH.get();
+            try {
+                return analyze(topPages, userQuery, scratch);
+            } finally {
+                scratch.release();
+            }
+        }
+    }
+
+    private List<String> analyze(List<WebPage> topPages, String userQuery, Scratch scratch) {
+        StringIntMap candidateFreq = scratch.freq;
         String lowerQuery = userQuery.toLowerCase().trim();
         
         boolean hasSpace = userQuery.contains(" ");
         String firstWord = hasSpace ? userQuery.split("\\s+")[0] : userQuery;
         
+        // 精確比對找不到時改用模糊比對，每個查詢只建一次
+        String fuzzyTarget = hasSpace ? firstWord.toLowerCase() : lowerQuery;
+        FuzzyMatcher fuzzy = fuzzyMatcher(fuzzyTarget);
+
         List<WebPage> targetPages = topPages.size() > 10 ? topPages.subList(0, 10) : topPages;
 
         for (WebPage page : targetPages) {
             String rawTitle = page.title;
             if (rawTitle == null) continue;
 
-            // 清洗
-            
-            String cleanTitle = rawTitle.replaceAll("(?i)(\\s*[-|–:_]\\s*).*$", "")
-                                   .replaceAll("【.*?】", " ")
-                                   .replaceAll("\\[.*?\\]", " ")
-                                   .replaceAll("\\(.*?\\)", " ")
-                                   .replaceAll("《.*?》", " ");
-            
-            // 加入 \\p{M} 支援聲調符號
-            cleanTitle = cleanTitle.replaceAll("[^\\p{L}\\p{N}\\p{M}\\s]", " ");
-            
-            cleanTitle = cleanTitle.trim().replaceAll("\\s+", " ");
-            String lowerTitle = cleanTitle.toLowerCase();
+            // 清洗 (去後綴、括號與符號，空白已合併為單一空格)
+            TitleCleaner.Title title = titleCleaner.clean(rawTitle);
+            String cleanTitle = title.text;
+            String lowerTitle = title.lower;
 
             // 挖掘邏輯
             
             if (hasSpace) {
                 // 空格查詢策略
-                extractSecondWords(cleanTitle, firstWord, candidateFreq);
+                extractSecondWords(title, firstWord, fuzzy, candidateFreq);
             } else {
                 // 無空格查詢策略 (包含錯字處理)
                 int idx = lowerTitle.indexOf(lowerQuery);
                 
-                // 如果精確比對找不到，嘗試「模糊比對」
-                if (idx == -1) {
-                    idx = findFuzzyMatchIndex(lowerTitle, lowerQuery);
+                // 如果精確比對找不到，用模糊比對找最像的一處 (允許漏字、多字、錯字)
+                if (idx == -1 && fuzzy != null) {
+                    int end = fuzzy.findEnd(lowerTitle);
+                    // 位置是在小寫標題上算的，少數字元 (例如 İ) 轉小寫後變長，可能超出原標題
+                    if (end != -1 && end <= cleanTitle.length()) collectSuffix(cleanTitle.substring(end), candidateFreq);
                 }
 
                 while (idx != -1) {
                     // 從找到的位置往後抓
-                    String suffix = cleanTitle.substring(idx + userQuery.length());
-                    suffix = trimLeadingStopWords(suffix);
-                    if (!suffix.isEmpty()) {
-                        extractCandidates(suffix, candidateFreq);
-                    }
+                    int end = idx + userQuery.length();
+                    if (end <= cleanTitle.length()) collectSuffix(cleanTitle.substring(end), candidateFreq);
                     // 繼續找下一個
-                    if (lowerTitle.indexOf(lowerQuery, idx + 1) != -1) {
-                        idx = lowerTitle.indexOf(lowerQuery, idx + 1);
-                    } else {
-                        break; 
-                    }
+                    idx = lowerTitle.indexOf(lowerQuery, idx + 1);
                 }
             }
         }
 
-        // 排序與輸出
-        List<String> suggestions = new java.util.ArrayList<>();
-        Set<Character> usedChars = new HashSet<>();
-        
-        candidateFreq.entrySet().stream()
-            .sorted((a, b) -> {
-                int freqCompare = b.getValue().compareTo(a.getValue());
-                if (freqCompare != 0) return freqCompare;
-                return Integer.compare(a.getKey().length(), b.getKey().length());
-            })
-            .map(Map.Entry::getKey)
-            .filter(s -> isValidCandidate(s, lowerQuery))
-            .forEach(candidate -> {
-                if (suggestions.size() >= 10) return;
-                if (containsUsedChars(candidate, usedChars)) return;
-                
+        // 這次的候選加入長期統計，再與這個查詢詞過去累積的候選一起排序 (沒有搜尋結果時也能給建議)
+        if (keywordModel != null) {
+            String anchor = hasSpace ? firstWord.toLowerCase() : lowerQuery;
+            keywordModel.observe(anchor, candidateFreq);
+            keywordModel.addRelated(anchor, candidateFreq);
+        }
+
+        // 排序與輸出：次數多的優先，同次數時較短的優先
+        scratch.ensureCandidates(candidateFreq.size());
+        String[] candidates = scratch.candidates;
+        long[] keys = scratch.keys;
+        int count = 0;
+        for (int i = 0; i < candidateFreq.size(); i++) {
+            String candidate = candidateFreq.key(i);
+            if (!isValidCandidate(candidate, lowerQuery)) continue;
+            candidates[count] = candidate;
+            keys[count] = rankKey(candidateFreq.value(i), candidate.length());
+            count++;
+        }
+
+        // 字元不可重複的條件會刷掉一些候選，先取前 16 名，不夠 10 個建議再加倍重選
+        List<String> suggestions = new ArrayList<>();
+        for (int k = 16; ; k *= 2) {
+            TopK top = new TopK(Math.min(k, Math.max(1, count)));
+            for (int i = 0; i < count; i++) {
+                top.offer(keys[i], i);
+            }
+
+            suggestions.clear();
+            BitSet usedChars = scratch.usedChars;
+            usedChars.clear();
+            for (int slot : top.sortedSlots()) {
+                if (suggestions.size() >= MAX_SUGGESTIONS) break;
+                String candidate = candidates[top.id(slot)];
+                if (containsUsedChars(candidate, usedChars)) continue;
+
                 // 如果使用者打錯字，建議時還是用原本打的字 + 建議詞
                 String suggestion = hasSpace ? firstWord + " " + candidate : userQuery + " " + candidate;
                 suggestions.add(suggestion);
-                
-                for (char c : candidate.toCharArray()) {
-                    if (Character.isLetterOrDigit(c)) usedChars.add(Character.toLowerCase(c));
+
+                for (int i = 0; i < candidate.length(); i++) {
+                    char c = candidate.charAt(i);
+                    if (Character.isLetterOrDigit(c)) usedChars.set(Character.toLowerCase(c));
                 }
-            });
-        
+            }
+            if (suggestions.size() >= MAX_SUGGESTIONS || k >= count) break;
+        }
+
         return suggestions;
     }
+
+    // 次數放高位、長度取反放低位，數值越大排越前面
+    private static long rankKey(int freq, int length) {
+        return ((long) freq << 32) | (Integer.MAX_VALUE - length);
+    }
     
     /**
-     * 模糊比對：在標題中尋找與 Query 最像的片段，允許一定比例的錯字
+     * 模糊比對：允許約 25% 的編輯距離 (至少 1)，太短的詞不做模糊比對
      */
-    private int findFuzzyMatchIndex(String title, String query) {
-        if (title.length() < query.length()) return -1;
-        if (query.length() < 2) return -1; // 太短不模糊比對
-
-        int bestIdx = -1;
-        // 允許 25% 的錯誤
-        int maxErrors = Math.max(1, query.length() / 4); 
-        int minDiff = Integer.MAX_VALUE;
-
-        // 滑動視窗掃描整串標題
-        for (int i = 0; i <= title.length() - query.length(); i++) {
-            String sub = title.substring(i, i + query.length());
-            int diff = 0;
-            
-            // 計算差異字元數
-            for (int j = 0; j < query.length(); j++) {
-                if (sub.charAt(j) != query.charAt(j)) {
-                    diff++;
-                }
-            }
-            
-            // 如果差異在容許範圍內，且是目前最像的
-            if (diff <= maxErrors && diff < minDiff) {
-                minDiff = diff;
-                bestIdx = i;
-            }
+    private static FuzzyMatcher fuzzyMatcher(String query) {
+        if (query.length() < 2) return null;
+        return new FuzzyMatcher(query, Math.max(1, query.length() / 4));
+    }
+
+    private void collectSuffix(String suffix, StringIntMap freqMap) {
+        suffix = trimLeadingStopWords(suffix);
+        if (!suffix.isEmpty()) {
+            extractCandidates(suffix, freqMap);
         }
-        
-        if (minDiff > maxErrors) return -1;
-        
-        return bestIdx;
     }
 
-    private void extractSecondWords(String title, String firstWord, Map<String, Integer> freqMap) {
-        String lowerTitle = title.toLowerCase();
-        String lowerFirst = firstWord.toLowerCase();
-        int idx = lowerTitle.indexOf(lowerFirst);
+    private void extractSecondWords(TitleCleaner.Title cleaned, String firstWord, FuzzyMatcher fuzzy, StringIntMap freqMap) {
+        String title = cleaned.text;
+        int idx = cleaned.lower.indexOf(firstWord.toLowerCase());
+        int start = idx == -1 ? -1 : idx + firstWord.length();
         
-        // 如果空格搜尋的第一個詞也打錯 (例如 "荒也 攻略")，也嘗試模糊比對
-        if (idx == -1) {
-            idx = findFuzzyMatchIndex(lowerTitle, lowerFirst);
+        // 如果空格搜尋的第一個詞也打錯 (例如 "荒也 攻略")，也嘗試模糊比對，從最像片段的結尾往後抓
+        if (start == -1 && fuzzy != null) {
+            start = fuzzy.findEnd(cleaned.lower);
         }
 
-        while (idx != -1) {
-            int start = idx + firstWord.length();
-            if (start < title.length()) {
-                String suffix = title.substring(start).trim();
-                if (!suffix.isEmpty()) {
-                    String[] parts = suffix.split("\\s+");
-                    if (parts.length > 0 && parts[0].length() >= 2) {
-                        String secondWord = parts[0];
-                        if (!STOP_WORDS.contains(secondWord.toLowerCase())) {
-                            freqMap.put(secondWord, freqMap.getOrDefault(secondWord, 0) + 3);
-                        }
-                    }
-                    String noSpace = suffix.replaceAll("\\s+", "");
-                    for (int len = 2; len <= Math.min(4, noSpace.length()); len++) {
-                        String gram = noSpace.substring(0, len);
-                        if (!containsStopWord(gram.toLowerCase())) {
-                            freqMap.put(gram, freqMap.getOrDefault(gram, 0) + 1);
-                        }
+        if (start != -1 && start < title.length()) {
+            String suffix = title.substring(start).trim();
+            if (!suffix.isEmpty()) {
+                int wordEnd = tokenEnd(suffix);
+                if (wordEnd >= 2 && !STOP_WORDS.matches(suffix.substring(0, wordEnd).toLowerCase())) {
+                    freqMap.add(suffix, 0, wordEnd, 3);
+                }
+                // 標題已清洗過，空白只會是單一空格
+                String noSpace = suffix.replace(" ", "");
+                String lowerNoSpace = noSpace.toLowerCase();
+                // 少數字元 (例如 İ) 轉小寫後長度會變，此時位置對不上，改用原字串
+                if (lowerNoSpace.length() != noSpace.length()) lowerNoSpace = noSpace;
+                for (int len = 2; len <= Math.min(4, noSpace.length()); len++) {
+                    if (!STOP_WORDS.containsAny(lowerNoSpace, 0, len)) {
+                        freqMap.add(noSpace, 0, len, 1);
                     }
                 }
             }
-            // 模糊比對後只取第一個最像的
-            break;
         }
     }
     
     
-    private boolean containsUsedChars(String candidate, Set<Character> usedChars) {
-        for (char c : candidate.toCharArray()) {
+    private boolean containsUsedChars(String candidate, BitSet usedChars) {
+        for (int i = 0; i < candidate.length(); i++) {
+            char c = candidate.charAt(i);
             if (Character.isLetterOrDigit(c)) {
-                if (usedChars.contains(Character.toLowerCase(c))) return true;
+                if (usedChars.get(Character.toLowerCase(c))) return true;
             }
         }
         return false;
@@ -194,15 +247,14 @@ public class SemanticAnalyzer {
         for (int i = 0; i < 3; i++) {
             processed = processed.trim();
             if (processed.isEmpty()) return "";
-            String firstChar = processed.substring(0, 1);
-            if (STOP_WORDS.contains(firstChar)) {
+            if (STOP_WORDS.matches(processed, 0, 1)) {
                 processed = processed.substring(1);
                 continue;
             }
             int spaceIdx = processed.indexOf(" ");
             if (spaceIdx != -1) {
                 String firstWord = processed.substring(0, spaceIdx).toLowerCase();
-                if (STOP_WORDS.contains(firstWord)) {
+                if (STOP_WORDS.matches(firstWord)) {
                     processed = processed.substring(spaceIdx + 1);
                     continue;
                 }
@@ -212,38 +264,37 @@ public class SemanticAnalyzer {
         return processed;
     }
 
-    private void extractCandidates(String suffix, Map<String, Integer> freqMap) {
-        String[] parts = suffix.split("\\s+");
-        if (parts.length > 0) {
-            String word = parts[0].trim();
-            if (word.length() > 1 && !STOP_WORDS.contains(word.toLowerCase())) {
-                freqMap.put(word, freqMap.getOrDefault(word, 0) + 3);
-            }
-        }
-        if (suffix.length() >= 2) {
-            String two = suffix.substring(0, 2);
-            if (!containsStopWord(two) && !two.contains(" ")) {
-                freqMap.put(two, freqMap.getOrDefault(two, 0) + 1);
-            }
+    private void extractCandidates(String suffix, StringIntMap freqMap) {
+        int wordEnd = tokenEnd(suffix);
+        if (wordEnd > 1 && !STOP_WORDS.matches(suffix.substring(0, wordEnd).toLowerCase())) {
+            freqMap.add(suffix, 0, wordEnd, 3);
         }
-        if (suffix.length() >= 3) {
-            String three = suffix.substring(0, 3);
-            if (!containsStopWord(three) && !three.contains(" ")) {
-                freqMap.put(three, freqMap.getOrDefault(three, 0) + 1);
+        // 前 2、3 個字不含空白時才當候選
+        for (int len = 2; len <= Math.min(3, wordEnd); len++) {
+            if (!STOP_WORDS.containsAny(suffix, 0, len)) {
+                freqMap.add(suffix, 0, len, 1);
             }
         }
     }
 
-    private boolean containsStopWord(String s) {
-        for (String stop : STOP_WORDS) if (s.contains(stop)) return true;
-        return false;
+    // 第一個詞的結束位置：清洗過的文字以單一空格分隔，開頭是空格時為 0 (與 split("\\s+")[0] 相同)
+    private static int tokenEnd(String s) {
+        int space = s.indexOf(' ');
+        return space < 0 ? s.length() : space;
     }
 
     private boolean isValidCandidate(String s, String query) {
         if (s.length() < 2) return false;
         if (s.length() > 13) return false;
         if (s.toLowerCase().contains(query)) return false;
-        if (s.matches("[0-9]+")) return false;
+        return !isAllAsciiDigits(s);
+    }
+
+    private static boolean isAllAsciiDigits(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
         return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package dsfinal.demo.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 停用詞字典樹：判斷一段文字「是不是」或「有沒有包含」停用詞，
+ * 不必對每個停用詞各做一次 String.contains，成本只跟文字長度與最長停用詞有關。
+ *
+ * 比對區分大小寫 (與 Set.contains / String.contains 相同)，需要時由呼叫端先轉小寫。
+ * 建立後不可修改，可跨執行緒共用。
+ */
+public class StopWordTrie {
+
+    private static final int ROOT = 0;
+
+    // 每個節點的子節點依字元排序，查找時二分搜尋
+    private final char[][] labels;
+    private final int[][] children;
+    private final boolean[] terminal;
+
+    public StopWordTrie(Collection<String> words) {
+        List<TreeMap<Character, Integer>> nodes = new ArrayList<>();
+        List<Boolean> ends = new ArrayList<>();
+        nodes.add(new TreeMap<>());
+        ends.add(false);
+
+        for (String word : words) {
+            if (word.isEmpty()) throw new IllegalArgumentException("停用詞不可為空字串");
+            int node = ROOT;
+            for (int i = 0; i < word.length(); i++) {
+                Integer next = nodes.get(node).get(word.charAt(i));
+                if (next == null) {
+                    next = nodes.size();
+                    nodes.get(node).put(word.charAt(i), next);
+                    nodes.add(new TreeMap<>());
+                    ends.add(false);
+                }
+                node = next;
+            }
+            ends.set(node, true);
+        }
+
+        int n = nodes.size();
+        labels = new char[n][];
+        children = new int[n][];
+        terminal = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            TreeMap<Character, Integer> map = nodes.get(i);
+            labels[i] = new char[map.size()];
+            children[i] = new int[map.size()];
+            int j = 0;
+            for (Map.Entry<Character, Integer> e : map.entrySet()) {
+                labels[i][j] = e.getKey();
+                children[i][j] = e.getValue();
+                j++;
+            }
+            terminal[i] = ends.get(i);
+        }
+    }
+
+    /** 整段文字剛好是一個停用詞 */
+    public boolean matches(CharSequence s) {
+        return matches(s, 0, s.length());
+    }
+
+    public boolean matches(CharSequence s, int start, int end) {
+        if (start >= end) return false;
+        int node = ROOT;
+        for (int i = start; i < end; i++) {
+            node = step(node, s.charAt(i));
+            if (node < 0) return false;
+        }
+        return terminal[node];
+    }
+
+    /** 文字中任何位置出現停用詞 */
+    public boolean containsAny(CharSequence s) {
+        return containsAny(s, 0, s.length());
+    }
+
+    public boolean containsAny(CharSequence s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            int node = ROOT;
+            for (int j = i; j < end; j++) {
+                node = step(node, s.charAt(j));
+                if (node < 0) break;
+                if (terminal[node]) return true;
+            }
+        }
+        return false;
+    }
+
+    private int step(int node, char c) {
+        int idx = Arrays.binarySearch(labels[node], c);
+        return idx < 0 ? -1 : children[node][idx];
+    }
+}
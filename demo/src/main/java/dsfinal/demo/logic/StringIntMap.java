@@ -0,0 +1,146 @@
+package dsfinal.demo.logic;
+
+import java.util.Arrays;
+
+/**
+ * String → int 的計數表 (open addressing、線性探測)，取代 HashMap&lt;String, Integer&gt;：
+ * 累加時不裝箱，也不建立 Map.Entry。
+ *
+ * 項目依加入順序存放在連續陣列中，以 0 ~ size()-1 的索引走訪 (key(i)、value(i))；
+ * 雜湊表只存項目索引。可用區間 (CharSequence, from, to) 查詢與累加，已存在的 key 不必先 substring。
+ * clear() 保留已配置的容量，適合重複使用。非執行緒安全。
+ */
+public class StringIntMap {
+
+    private String[] keys;
+    private int[] hashes;
+    private int[] values;
+    private int size;
+
+    // 存項目索引 + 1，0 表示空位；容量為 2 的次方，使用率不超過一半
+    private int[] table;
+    private int mask;
+
+    public StringIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        table = new int[capacity];
+        mask = capacity - 1;
+        keys = new String[capacity / 2];
+        hashes = new int[capacity / 2];
+        values = new int[capacity / 2];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String key(int i) {
+        return keys[i];
+    }
+
+    public int value(int i) {
+        return values[i];
+    }
+
+    public void setValue(int i, int value) {
+        values[i] = value;
+    }
+
+    /** 沒有這個 key 時回傳 0 */
+    public int get(String key) {
+        int i = indexOf(key, 0, key.length(), key.hashCode());
+        return i < 0 ? 0 : values[i];
+    }
+
+    public boolean containsKey(String key) {
+        return indexOf(key, 0, key.length(), key.hashCode()) >= 0;
+    }
+
+    public void put(String key, int value) {
+        int i = indexOf(key, 0, key.length(), key.hashCode());
+        if (i < 0) i = insert(key, key.hashCode());
+        values[i] = value;
+    }
+
+    /** 累加並回傳累加後的值 */
+    public int add(String key, int delta) {
+        int i = indexOf(key, 0, key.length(), key.hashCode());
+        if (i < 0) i = insert(key, key.hashCode());
+        return values[i] += delta;
+    }
+
+    /** 以 s 的 [from, to) 為 key 累加，只有新 key 才建立字串 */
+    public int add(CharSequence s, int from, int to, int delta) {
+        int hash = hash(s, from, to);
+        int i = indexOf(s, from, to, hash);
+        if (i < 0) i = insert(s.subSequence(from, to).toString(), hash);
+        return values[i] += delta;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(keys, 0, size, null);
+        size = 0;
+    }
+
+    // 與 String.hashCode 相同的算法，區間與整個字串可以互相比對
+    private static int hash(CharSequence s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) h = 31 * h + s.charAt(i);
+        return h;
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(CharSequence s, int from, int to, int hash) {
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int i = entry - 1;
+            if (hashes[i] == hash && regionEquals(keys[i], s, from, to)) return i;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(String key, CharSequence s, int from, int to) {
+        if (key.length() != to - from) return false;
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != s.charAt(from + i)) return false;
+        }
+        return true;
+    }
+
+    private int insert(String key, int hash) {
+        if (size == keys.length) grow();
+        int i = size++;
+        keys[i] = key;
+        hashes[i] = hash;
+        values[i] = 0;
+        place(i);
+        return i;
+    }
+
+    private void place(int i) {
+        int slot = spread(hashes[i]) & mask;
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = i + 1;
+    }
+
+    private void grow() {
+        int capacity = table.length * 2;
+        table = new int[capacity];
+        mask = capacity - 1;
+        keys = Arrays.copyOf(keys, capacity / 2);
+        hashes = Arrays.copyOf(hashes, capacity / 2);
+        values = Arrays.copyOf(values, capacity / 2);
+        for (int i = 0; i < size; i++) place(i);
+    }
+}
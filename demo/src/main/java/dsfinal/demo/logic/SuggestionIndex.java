@@ -0,0 +1,157 @@
+package dsfinal.demo.logic;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 搜尋框的自動補完：累積熱門查詢與相關關鍵字建議的權重，查詢時在 CompletionTrie 上找前綴。
+ *
+ * 字典樹建立後不可修改，新增的詞先記在 map 中，距上次建立超過 REBUILD_INTERVAL_MS
+ * 時才在背景重新建立並整份替換，查詢永遠不必加鎖，也不會等待重建。
+ *
+ * 比對用的 key 經過 NFKC (全形/半形、阿拉伯文字形統一)、轉小寫、去除不能合併的組合符號
+ * (例如阿拉伯文母音符號) 並合併空白，顯示時仍用原本的字串。
+ */
+public class SuggestionIndex {
+
+    public static final int MAX_LIMIT = 10;
+
+    static final int MAX_PHRASES = 20000;
+    private static final int MAX_PHRASE_LENGTH = 50;
+    private static final long REBUILD_INTERVAL_MS = 2000;
+
+    private static final class Entry {
+        String display;
+        int weight;
+        // 最後一次加入的順序，同權重時較舊的先淘汰
+        long touched;
+    }
+
+    // 依 key 排序，建立字典樹時不必再排序
+    private final TreeMap<String, Entry> phrases = new TreeMap<>();
+    private volatile CompletionTrie trie = CompletionTrie.empty();
+    private boolean dirty;
+    private long lastBuild;
+    // 建立完成的順序可能與開始的順序不同，只採用較新的一份
+    private long builds;
+    private long published;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private long adds;
+
+    public void record(String phrase, int weight) {
+        add(phrase, weight);
+        rebuildInBackground();
+    }
+
+    /** 一次加入多個詞並立即重建 (例如啟動時預先載入) */
+    public void recordAll(Map<String, Integer> weighted) {
+        weighted.forEach(this::add);
+        rebuild(true);
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        rebuildInBackground();
+        String key = normalize(prefix);
+        if (key.isEmpty()) return List.of();
+        // 打完一個詞加了空白，只補完以這個詞開頭的片語
+        if (Character.isWhitespace(prefix.charAt(prefix.length() - 1))) key += " ";
+        return trie.complete(key, Math.min(Math.max(limit, 1), MAX_LIMIT));
+    }
+
+    public int size() {
+        return trie.size();
+    }
+
+    private void add(String phrase, int weight) {
+        String key = normalize(phrase);
+        if (key.isEmpty() || key.length() > MAX_PHRASE_LENGTH) return;
+        synchronized (this) {
+            Entry entry = phrases.computeIfAbsent(key, k -> new Entry());
+            entry.display = phrase.trim().replaceAll("\\s+", " ");
+            entry.weight = (int) Math.min(Integer.MAX_VALUE, (long) entry.weight + weight);
+            entry.touched = ++adds;
+            dirty = true;
+        }
+    }
+
+    // 兩萬個詞建立約需數十毫秒，不在請求的執行緒上做；同時只有一個重建
+    private void rebuildInBackground() {
+        synchronized (this) {
+            if (!dirty || System.currentTimeMillis() - lastBuild < REBUILD_INTERVAL_MS) return;
+        }
+        if (!rebuilding.compareAndSet(false, true)) return;
+        CompletableFuture.runAsync(() -> {
+            try {
+                rebuild(false);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+    }
+
+    private void rebuild(boolean force) {
+        long now = System.currentTimeMillis();
+        List<String> keys;
+        List<String> displays;
+        List<Integer> weights;
+        long seq;
+        synchronized (this) {
+            if (!dirty || (!force && now - lastBuild < REBUILD_INTERVAL_MS)) return;
+            if (phrases.size() > MAX_PHRASES) evictLightest();
+            keys = new ArrayList<>(phrases.size());
+            displays = new ArrayList<>(phrases.size());
+            weights = new ArrayList<>(phrases.size());
+            for (Map.Entry<String, Entry> e : phrases.entrySet()) {
+                keys.add(e.getKey());
+                displays.add(e.getValue().display);
+                weights.add(e.getValue().weight);
+            }
+            dirty = false;
+            lastBuild = now;
+            seq = ++builds;
+        }
+        CompletionTrie built = CompletionTrie.build(keys, displays, weights, MAX_LIMIT);
+        synchronized (this) {
+            if (seq > published) {
+                trie = built;
+                published = seq;
+            }
+        }
+    }
+
+    // 超過上限時剛好留下 MAX_PHRASES 的 3/4：權重低的先淘汰，同權重時較久沒出現的先淘汰
+    private void evictLightest() {
+        List<Map.Entry<String, Entry>> order = new ArrayList<>(phrases.entrySet());
+        order.sort(Comparator.<Map.Entry<String, Entry>>comparingInt(e -> e.getValue().weight)
+                .thenComparingLong(e -> e.getValue().touched));
+        int evict = phrases.size() - MAX_PHRASES * 3 / 4;
+        List<String> victims = new ArrayList<>(evict);
+        for (int i = 0; i < evict; i++) victims.add(order.get(i).getKey());
+        for (String key : victims) phrases.remove(key);
+    }
+
+    public static String normalize(String s) {
+        String nfkc = Normalizer.normalize(s, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(nfkc.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < nfkc.length(); i++) {
+            char c = nfkc.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && c != 'ـ') {
+                // ـ 為阿拉伯文延長符號，只影響字形
+                if (pendingSpace) sb.append(' ');
+                pendingSpace = false;
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package dsfinal.demo.logic;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 依設定建立平台執行緒或虛擬執行緒 (virtual thread) 的 executor。
+ *
+ * 專案以 Java 17 編譯，虛擬執行緒 (Java 21+) 以反射建立；
+ * 執行環境不支援時自動退回平台執行緒，行為不變。
+ * 開關與 Spring Boot 的 spring.threads.virtual.enabled 相同 (該設定也會讓 Tomcat 改用虛擬執行緒)。
+ */
+public final class ThreadMode {
+
+    private static final ThreadFactoryBuilder VIRTUAL = lookupVirtual();
+
+    private ThreadMode() {}
+
+    public static boolean virtualThreadsSupported() {
+        return VIRTUAL != null;
+    }
+
+    /**
+     * virtual 為 true 且 JVM 支援時，每個工作一個虛擬執行緒；
+     * 否則為 platformThreads 個 daemon 平台執行緒 (0 表示依需要增加的 cached pool)。
+     */
+    public static ExecutorService newExecutor(String name, boolean virtual, int platformThreads) {
+        if (virtual && VIRTUAL != null) {
+            try {
+                return VIRTUAL.newExecutor(name);
+            } catch (ReflectiveOperationException e) {
+                System.err.println(">>> 無法建立虛擬執行緒，改用平台執行緒: " + e);
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return platformThreads > 0
+                ? Executors.newFixedThreadPool(platformThreads, factory)
+                : Executors.newCachedThreadPool(factory);
+    }
+
+    // Thread.ofVirtual().name(prefix, 0).factory() 與 Executors.newThreadPerTaskExecutor(factory)
+    private static ThreadFactoryBuilder lookupVirtual() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Method nameMethod = builder.getMethod("name", String.class, long.class);
+            Method factoryMethod = builder.getMethod("factory");
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return name -> {
+                Object b = nameMethod.invoke(ofVirtual.invoke(null), name + "-", 0L);
+                return (ExecutorService) perTask.invoke(null, factoryMethod.invoke(b));
+            };
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private interface ThreadFactoryBuilder {
+        ExecutorService newExecutor(String name) throws ReflectiveOperationException;
+    }
+}
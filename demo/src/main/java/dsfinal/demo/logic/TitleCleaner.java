@@ -0,0 +1,113 @@
+package dsfinal.demo.logic;
+
+/**
+ * 搜尋結果標題的清洗：去掉網站名稱等後綴、括號內容與符號，連續空白合併為一個。
+ *
+ * 原本是七次 replaceAll，每次都重新編譯正規表示式並產生新字串；
+ * 這裡逐字元掃描一次完成。同一個標題常在不同查詢重複出現，結果另外以 LRU 記住。
+ */
+public class TitleCleaner {
+
+    public static final class Title {
+        public final String text;
+        public final String lower;
+
+        Title(String text) {
+            this.text = text;
+            this.lower = text.toLowerCase();
+        }
+    }
+
+    private final TtlLruCache<String, Title> memo;
+
+    public TitleCleaner(int memoSize) {
+        this.memo = new TtlLruCache<>(memoSize, 0);
+    }
+
+    public Title clean(String rawTitle) {
+        return memo.get(rawTitle, t -> new Title(normalize(t)));
+    }
+
+    public long memoHits() {
+        return memo.getHits();
+    }
+
+    /**
+     * 等同於依序執行：
+     * 1. 第一個 - | – : _ 之後全部捨棄 (通常是網站名稱)
+     * 2. 移除 【…】 [...] (...) 《…》 (沒有成對的括號當作一般符號)
+     * 3. 字母、數字、組合符號 (聲調) 以外的字元都視為空白
+     * 4. 去頭尾空白，連續空白合併為一個空格
+     * 括號由左而右處理，交錯的括號 (例如 "(a【b)c】") 結果可能與逐種替換不同。
+     */
+    public static String normalize(String raw) {
+        int end = raw.length();
+        for (int i = 0; i < end; i++) {
+            if (isSeparator(raw.charAt(i))) {
+                end = i;
+                break;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(end);
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < end) {
+            char c = raw.charAt(i);
+            char close = closingBracket(c);
+            if (close != 0) {
+                int j = raw.indexOf(close, i + 1);
+                if (j >= 0 && j < end) {
+                    pendingSpace = true;
+                    i = j + 1;
+                    continue;
+                }
+            }
+
+            int cp = raw.codePointAt(i);
+            if (isKept(cp)) {
+                if (pendingSpace && sb.length() > 0) sb.append(' ');
+                pendingSpace = false;
+                sb.appendCodePoint(cp);
+            } else {
+                pendingSpace = true;
+            }
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '-' || c == '|' || c == '–' || c == ':' || c == '_';
+    }
+
+    private static char closingBracket(char c) {
+        switch (c) {
+            case '【': return '】';
+            case '[': return ']';
+            case '(': return ')';
+            case '《': return '》';
+            default: return 0;
+        }
+    }
+
+    // \p{L}、\p{N}、\p{M}
+    private static boolean isKept(int cp) {
+        switch (Character.getType(cp)) {
+            case Character.UPPERCASE_LETTER:
+            case Character.LOWERCASE_LETTER:
+            case Character.TITLECASE_LETTER:
+            case Character.MODIFIER_LETTER:
+            case Character.OTHER_LETTER:
+            case Character.DECIMAL_DIGIT_NUMBER:
+            case Character.LETTER_NUMBER:
+            case Character.OTHER_NUMBER:
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package dsfinal.demo.logic;
+
+/**
+ * 令牌桶限速，執行緒安全。
+ * 每秒補充 ratePerSecond 個令牌，最多累積 capacity 個 (允許短時間的突發請求)。
+ */
+public class TokenBucket {
+
+    private final double ratePerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, int capacity) {
+        if (ratePerSecond <= 0 || capacity < 1) throw new IllegalArgumentException("rate 與 capacity 必須大於 0");
+        this.ratePerNano = ratePerSecond / 1_000_000_000.0;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * 取得一個令牌，最多等待 maxWaitMs；等不到時立即回傳 false，不會占用令牌。
+     */
+    public boolean acquire(long maxWaitMs) throws InterruptedException {
+        long waitNanos = tryReserve(maxWaitMs);
+        if (waitNanos < 0) return false;
+        if (waitNanos > 0) Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+        return true;
+    }
+
+    /**
+     * 不阻塞的版本：預約一個令牌並回傳需要等待的奈秒數 (由呼叫端自行延後)，
+     * 超過 maxWaitMs 時回傳 -1 且不占用令牌。
+     */
+    public long tryReserve(long maxWaitMs) {
+        return reserve(maxWaitMs * 1_000_000L, System.nanoTime());
+    }
+
+    /**
+     * 預約一個令牌，回傳需要等待的奈秒數；超過 maxWaitNanos 時回傳 -1。
+     * 預約後令牌數可能暫時為負，代表已被排隊中的請求預支。
+     */
+    synchronized long reserve(long maxWaitNanos, long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long wait = (long) Math.ceil((1 - tokens) / ratePerNano);
+        if (wait > maxWaitNanos) return -1;
+        tokens -= 1;
+        return wait;
+    }
+
+    public synchronized double available() {
+        return Math.max(0, Math.min(capacity, tokens + (System.nanoTime() - lastRefill) * ratePerNano));
+    }
+}
@@ -0,0 +1,123 @@
+package dsfinal.demo.logic;
+
+/**
+ * 固定容量的前 k 名選擇器，只用 long/int 陣列，不為候選建立物件。
+ *
+ * 排序規則：score 大的優先，同分時 id 小的優先 (呼叫端依出現順序給 id，
+ * 就等同穩定排序)。每個入選的候選佔一個 slot (0 ~ k-1)，
+ * 呼叫端可以用 slot 當索引，另外存放少量的對應資料；被淘汰的 slot 會給下一個入選者重用。
+ */
+public class TopK {
+
+    private final int k;
+    private final long[] scores;
+    private final int[] ids;
+    // 以 slot 組成的堆積，heap[0] 是目前最差的
+    private final int[] heap;
+    private int size;
+
+    public TopK(int k) {
+        if (k <= 0) throw new IllegalArgumentException("k 必須大於 0");
+        this.k = k;
+        this.scores = new long[k];
+        this.ids = new int[k];
+        this.heap = new int[k];
+    }
+
+    public int capacity() {
+        return k;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** 這個候選現在加入會不會入選；不會的話呼叫端可以省下建立資料的成本 */
+    public boolean accepts(long score, int id) {
+        if (size < k) return true;
+        int worst = heap[0];
+        return better(score, id, scores[worst], ids[worst]);
+    }
+
+    /**
+     * 加入候選，回傳它所在的 slot；沒有入選回傳 -1。
+     * 已滿時會淘汰目前最差的一個，並把它的 slot 給新的候選。
+     */
+    public int offer(long score, int id) {
+        int slot;
+        if (size < k) {
+            slot = size;
+            scores[slot] = score;
+            ids[slot] = id;
+            heap[size] = slot;
+            siftUp(size++);
+        } else {
+            if (!accepts(score, id)) return -1;
+            slot = heap[0];
+            scores[slot] = score;
+            ids[slot] = id;
+            siftDown(0, size);
+        }
+        return slot;
+    }
+
+    public long score(int slot) {
+        return scores[slot];
+    }
+
+    public int id(int slot) {
+        return ids[slot];
+    }
+
+    /** 由好到壞排列的 slot，不影響目前的內容 */
+    public int[] sortedSlots() {
+        int[] saved = new int[size];
+        System.arraycopy(heap, 0, saved, 0, size);
+
+        int[] out = new int[size];
+        for (int n = size; n > 0; n--) {
+            out[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            siftDown(0, n - 1);
+        }
+        System.arraycopy(saved, 0, heap, 0, size);
+        return out;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private static boolean better(long s1, int id1, long s2, int id2) {
+        return s1 != s2 ? s1 > s2 : id1 < id2;
+    }
+
+    // slot a 比 slot b 差
+    private boolean worse(int a, int b) {
+        return better(scores[b], ids[b], scores[a], ids[a]);
+    }
+
+    private void siftUp(int i) {
+        int slot = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(slot, heap[parent])) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = slot;
+    }
+
+    private void siftDown(int i, int n) {
+        int slot = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) break;
+            if (child + 1 < n && worse(heap[child + 1], heap[child])) child++;
+            if (!worse(heap[child], slot)) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = slot;
+    }
+}
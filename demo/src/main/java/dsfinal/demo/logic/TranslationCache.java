@@ -0,0 +1,153 @@
+package dsfinal.demo.logic;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 關鍵字翻譯快取：記憶體內為有上限的 TTL LRU，並以 append-only 檔案保存，
+ * 重新啟動時重播檔案即可恢復。
+ *
+ * 檔案每行格式：key \t 寫入時間 \t 譯文1 \u001F 譯文2 ...
+ */
+public class TranslationCache {
+
+    private static final char VALUE_SEPARATOR = '\u001F';
+
+    private final File file;
+    private final long ttlMillis;
+    private final TtlLruCache<String, Set<String>> cache;
+
+    private BufferedWriter writer;
+
+    public TranslationCache(String fileName, int maxSize, long ttlMillis) {
+        this.file = new File(fileName);
+        this.ttlMillis = ttlMillis;
+        this.cache = new TtlLruCache<>(maxSize, ttlMillis);
+        load();
+    }
+
+    /**
+     * 取得翻譯，沒有時呼叫 loader 查詢並寫入檔案。
+     * loader 回傳 null 表示查詢失敗，不會被快取。
+     */
+    public Set<String> get(String key, Function<String, Set<String>> loader) {
+        return cache.get(key, k -> {
+            Set<String> variants = loader.apply(k);
+            if (variants == null) return null;
+            Set<String> frozen = Collections.unmodifiableSet(new LinkedHashSet<>(variants));
+            append(k, frozen, System.currentTimeMillis());
+            return frozen;
+        });
+    }
+
+    /** 非同步版的 get：loader 回傳查詢中的 future，同一個 key 的併發查詢共用一次 */
+    public CompletableFuture<Set<String>> getAsync(String key, Function<String, CompletableFuture<Set<String>>> loader) {
+        return cache.getAsync(key, k -> loader.apply(k).thenApply(variants -> {
+            if (variants == null) return null;
+            Set<String> frozen = Collections.unmodifiableSet(new LinkedHashSet<>(variants));
+            append(k, frozen, System.currentTimeMillis());
+            return frozen;
+        }));
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private synchronized void append(String key, Set<String> variants, long createdAt) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(formatLine(key, variants, createdAt));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println(">>> 翻譯快取寫入失敗: " + e.getMessage());
+        }
+    }
+
+    // 重播檔案；重複的 key 以最後一筆為準，檔案膨脹時順便壓縮
+    private void load() {
+        if (!file.exists()) return;
+
+        Map<String, String> latest = new LinkedHashMap<>();
+        int lineCount = 0;
+        long now = System.currentTimeMillis();
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                String[] parts = line.split("\t", 3);
+                if (parts.length < 3) continue; // 寫到一半的行
+                long createdAt;
+                try {
+                    createdAt = Long.parseLong(parts[1]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                latest.remove(parts[0]);
+                if (ttlMillis > 0 && now - createdAt > ttlMillis) continue;
+
+                Set<String> variants = new LinkedHashSet<>();
+                for (String v : parts[2].split(String.valueOf(VALUE_SEPARATOR))) {
+                    if (!v.isEmpty()) variants.add(v);
+                }
+                cache.put(parts[0], Collections.unmodifiableSet(variants), createdAt);
+                latest.put(parts[0], line);
+            }
+        } catch (IOException e) {
+            System.err.println(">>> 翻譯快取讀取失敗: " + e.getMessage());
+            return;
+        }
+
+        System.out.println(">>> 載入翻譯快取，共 " + cache.size() + " 筆");
+        if (lineCount > latest.size() * 2) {
+            compact(new ArrayList<>(latest.values()));
+        }
+    }
+
+    private void compact(List<String> lines) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Files.write(tmp.toPath(), lines, StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println(">>> 翻譯快取壓縮失敗: " + e.getMessage());
+        }
+    }
+
+    private static String formatLine(String key, Set<String> variants, long createdAt) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(clean(key)).append('\t').append(createdAt).append('\t');
+        boolean first = true;
+        for (String v : variants) {
+            if (!first) sb.append(VALUE_SEPARATOR);
+            sb.append(clean(v));
+            first = false;
+        }
+        return sb.toString();
+    }
+
+    // 分隔字元與換行不能出現在欄位內
+    private static String clean(String s) {
+        return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ').replace(VALUE_SEPARATOR, ' ');
+    }
+}
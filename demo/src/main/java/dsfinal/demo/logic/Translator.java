@@ -0,0 +1,12 @@
+package dsfinal.demo.logic;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 關鍵字翻譯來源。
+ */
+public interface Translator {
+
+    /** 翻譯成 targetLang (例如 en、zh-TW)；失敗時結果為 null，不丟出例外 */
+    CompletableFuture<String> translate(String text, String targetLang);
+}
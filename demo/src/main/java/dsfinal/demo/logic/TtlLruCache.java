@@ -0,0 +1,197 @@
+package dsfinal.demo.logic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 有容量上限與存活時間 (TTL) 的 LRU 快取，執行緒安全。
+ * 同一個 key 同時 miss 時只會計算一次，其餘請求等待同一份結果。
+ */
+public class TtlLruCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    // accessOrder = true，最久沒用到的在最前面
+    private final LinkedHashMap<K, Entry<V>> map;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TtlLruCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > TtlLruCache.this.maxSize;
+            }
+        };
+    }
+
+    public V get(K key) {
+        synchronized (map) {
+            Entry<V> entry = map.get(key);
+            if (entry == null) return null;
+            if (isExpired(entry, System.currentTimeMillis())) {
+                map.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis());
+    }
+
+    // createdAt 用於從檔案還原時保留原本的寫入時間
+    public void put(K key, V value, long createdAt) {
+        if (isExpired(createdAt, System.currentTimeMillis())) return;
+        synchronized (map) {
+            map.put(key, new Entry<>(value, createdAt));
+        }
+    }
+
+    public void remove(K key) {
+        synchronized (map) {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * 取得快取值，沒有時呼叫 loader 計算。
+     * 同一 key 的併發 miss 共用同一次計算；loader 回傳 null 或丟出例外時不寫入快取。
+     */
+    public V get(K key, Function<K, V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            hits.incrementAndGet();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        misses.incrementAndGet();
+        try {
+            // 取得計算權後再查一次，避免剛好錯過前一次的寫入
+            V value = get(key);
+            if (value == null) {
+                value = loader.apply(key);
+                if (value != null) put(key, value);
+            }
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 非同步版的 get(key, loader)：loader 回傳計算中的 future，不占用呼叫端執行緒。
+     * 同一 key 的併發 miss 共用同一個 future；結果為 null 或失敗時不寫入快取。
+     */
+    public CompletableFuture<V> getAsync(K key, Function<K, CompletableFuture<V>> loader) {
+        return getAsync(key, loader, v -> true);
+    }
+
+    /**
+     * 同 getAsync(key, loader)，但只有 cacheable 成立的結果才寫入快取 (在完成時判斷)。
+     * 不寫入的結果仍會交給這次共用同一個 future 的呼叫端。
+     */
+    public CompletableFuture<V> getAsync(K key, Function<K, CompletableFuture<V>> loader, Predicate<V> cacheable) {
+        V cached = get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            hits.incrementAndGet();
+            return running;
+        }
+
+        misses.incrementAndGet();
+        V value = get(key);
+        if (value != null) {
+            inFlight.remove(key, mine);
+            mine.complete(value);
+            return mine;
+        }
+
+        CompletableFuture<V> loading;
+        try {
+            loading = loader.apply(key);
+        } catch (RuntimeException e) {
+            loading = CompletableFuture.failedFuture(e);
+        }
+        // 先寫入快取再移除 inFlight，之後到的請求一定能命中其中之一
+        loading.whenComplete((v, err) -> {
+            if (err == null && v != null && cacheable.test(v)) put(key, v);
+            inFlight.remove(key, mine);
+            if (err != null) mine.completeExceptionally(err);
+            else mine.complete(v);
+        });
+        return mine;
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return isExpired(entry.createdAt, now);
+    }
+
+    private boolean isExpired(long createdAt, long now) {
+        return ttlMillis > 0 && now - createdAt > ttlMillis;
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) return (RuntimeException) cause;
+        return e;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long createdAt;
+
+        Entry(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
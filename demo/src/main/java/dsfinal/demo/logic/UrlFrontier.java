@@ -0,0 +1,149 @@
+package dsfinal.demo.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 背景爬蟲的 URL frontier：依優先度排序，並實作每個網站的禮貌限制
+ * (同一網站兩次請求間的最短間隔、同時進行的請求數上限)。
+ * 所有方法都是 synchronized，可由多個爬蟲執行緒共用。
+ */
+public class UrlFrontier {
+
+    public static class Entry {
+        public String url;
+        public String host;
+        public double priority;
+        // 條件式重抓用的驗證資訊
+        public String etag;
+        public String lastModified;
+        public long nextFetchAt;
+        public int fetchCount;
+
+        public Entry() {}
+
+        Entry(String url, String host, double priority) {
+            this.url = url;
+            this.host = host;
+            this.priority = priority;
+        }
+    }
+
+    private final int maxSize;
+    private final long hostDelayMs;
+    private final int perHostConcurrency;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>((a, b) -> Double.compare(b.priority, a.priority));
+    private final Map<String, Long> hostReadyAt = new HashMap<>();
+    private final Map<String, Integer> hostActive = new HashMap<>();
+
+    public UrlFrontier(int maxSize, long hostDelayMs, int perHostConcurrency) {
+        this.maxSize = maxSize;
+        this.hostDelayMs = hostDelayMs;
+        this.perHostConcurrency = perHostConcurrency;
+    }
+
+    /** 加入或提高既有 URL 的優先度 */
+    public synchronized void offer(String url, double priority) {
+        String host = hostOf(url);
+        if (host.isEmpty()) return;
+
+        Entry existing = entries.get(url);
+        if (existing != null) {
+            if (priority > existing.priority && queue.remove(existing)) {
+                existing.priority = priority;
+                queue.add(existing);
+            }
+            return;
+        }
+
+        if (entries.size() >= maxSize && !evictLowest(priority)) return;
+        Entry entry = new Entry(url, host, priority);
+        entries.put(url, entry);
+        queue.add(entry);
+    }
+
+    /**
+     * 取出目前可以抓的最高優先度 URL：已到重抓時間、網站冷卻完畢且未超過併發上限。
+     * 沒有可抓的回傳 null。取出的項目必須以 complete() 歸還。
+     */
+    public synchronized Entry next(long now) {
+        List<Entry> skipped = new ArrayList<>();
+        Entry picked = null;
+        while (!queue.isEmpty()) {
+            Entry e = queue.poll();
+            if (e.nextFetchAt <= now
+                    && hostReadyAt.getOrDefault(e.host, 0L) <= now
+                    && hostActive.getOrDefault(e.host, 0) < perHostConcurrency) {
+                picked = e;
+                break;
+            }
+            skipped.add(e);
+        }
+        queue.addAll(skipped);
+
+        if (picked != null) {
+            hostActive.merge(picked.host, 1, Integer::sum);
+            hostReadyAt.put(picked.host, now + hostDelayMs);
+        }
+        return picked;
+    }
+
+    /** 抓取結束後歸還，並排定下次重抓時間 */
+    public synchronized void complete(Entry entry, long nextFetchAt) {
+        hostActive.merge(entry.host, -1, Integer::sum);
+        entry.fetchCount++;
+        entry.nextFetchAt = nextFetchAt;
+        if (entries.get(entry.url) == entry) queue.add(entry);
+    }
+
+    /** 抓取失敗或網址不再需要時移除 */
+    public synchronized void drop(Entry entry) {
+        hostActive.merge(entry.host, -1, Integer::sum);
+        entries.remove(entry.url, entry);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** 存檔用的複本 */
+    public synchronized List<Entry> snapshot() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /** 由存檔還原 */
+    public synchronized void restore(List<Entry> saved) {
+        for (Entry e : saved) {
+            if (e.url == null || entries.containsKey(e.url) || entries.size() >= maxSize) continue;
+            if (e.host == null) e.host = hostOf(e.url);
+            entries.put(e.url, e);
+            queue.add(e);
+        }
+    }
+
+    // 空間不足時，淘汰優先度最低且比新項目低的 URL
+    private boolean evictLowest(double incomingPriority) {
+        Entry lowest = null;
+        for (Entry e : queue) {
+            if (lowest == null || e.priority < lowest.priority) lowest = e;
+        }
+        if (lowest == null || lowest.priority >= incomingPriority) return false;
+        queue.remove(lowest);
+        entries.remove(lowest.url);
+        return true;
+    }
+
+    public static String hostOf(String url) {
+        int start = url.indexOf("://");
+        if (start == -1) return "";
+        start += 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) == -1) end++;
+        return url.substring(start, end).toLowerCase();
+    }
+}
@@ -0,0 +1,20 @@
+package dsfinal.demo.model;
+
+/**
+ * 收藏的網頁參照：只存網址與標題，不保存爬到的內文與子網頁。
+ */
+public class FavoriteRef {
+    public String url;
+    public String title;
+    // 加入順序，列出收藏時依此排序
+    public long addedAt;
+
+    public FavoriteRef() {
+    }
+
+    public FavoriteRef(String url, String title, long addedAt) {
+        this.url = url;
+        this.title = title;
+        this.addedAt = addedAt;
+    }
+}
@@ -1,12 +1,19 @@
 package dsfinal.demo.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import dsfinal.demo.logic.MultiPatternMatcher;
+import dsfinal.demo.logic.PipelineMetrics;
+import dsfinal.demo.logic.TopK;
 import dsfinal.demo.model.WebPage;
 
 @Service
@@ -16,7 +23,35 @@ public class AiSummaryService {
         "brawl", "荒野", "ブロスタ", "브롤", "бравл", "براول"
     };
 
+    // 出現即排除的版權/登入字樣
+    private final String[] BOILERPLATE_WORDS = {
+        "cookies", "login", "rights reserved", "登入"
+    };
+
+    // 解釋性詞彙
+    private final String[] EXPLAIN_WORDS_ZH = {"是", "為", "意思", "攻略", "技巧", "排名", "最強", "玩法", "介紹"};
+    private final String[] EXPLAIN_WORDS_EN = {"is", "guide", "tips", "intro", "best", "tier", "how to", "build"};
+
+    // 摘要取的句子數
+    private static final int SUMMARY_SENTENCES = 3;
+
+    @Autowired
+    private ExecutorService pipelineExecutor;
+
+    /** 非同步版，在 pipelineExecutor 上產生摘要；目前執行緒的 Trace 會一併帶過去 */
+    public CompletableFuture<String> generateSummaryAsync(String query, List<WebPage> topPages) {
+        PipelineMetrics metrics = PipelineMetrics.get();
+        PipelineMetrics.Trace trace = metrics.currentTrace();
+        return CompletableFuture.supplyAsync(() -> metrics.inTrace(trace, () -> generateSummary(query, topPages)), pipelineExecutor);
+    }
+
     public String generateSummary(String query, List<WebPage> topPages) {
+        try (PipelineMetrics.Span span = PipelineMetrics.get().start("summary")) {
+            return buildSummary(query, topPages);
+        }
+    }
+
+    private String buildSummary(String query, List<WebPage> topPages) {
         // 取前3篇
         List<WebPage> references = topPages.size() > 3 ? topPages.subList(0, 3) : topPages;
         
@@ -66,44 +101,70 @@ public class AiSummaryService {
     }
 
     private List<String> extractKeySentences(String query, List<WebPage> pages, boolean isChinese) {
-        List<SentenceScore> scoredSentences = new ArrayList<>();
-        Set<String> seenSentences = new HashSet<>(); 
+        SentenceMatcher matcher = new SentenceMatcher(query, isChinese);
+        MultiPatternMatcher.Scan scan = matcher.matcher.newScan();
+        // 只保留目前最好的3句 (同分時先出現的優先)，句子字串依 slot 存放
+        TopK best = new TopK(SUMMARY_SENTENCES);
+        String[] texts = new String[SUMMARY_SENTENCES];
+
+        // 長度限制
+        int minLen = isChinese ? 10 : 15;
+        int maxLen = 200;
+        int seq = 0;
 
         for (WebPage page : pages) {
-            if (page.content == null) continue;
-
-            // 移除特殊字元
-            String dirtyContent = page.content.replaceAll("[\\uE000-\\uF8FF]", ""); 
-            String[] sentences = dirtyContent.split("[。！？\\n\\r?!.]");
-
-            for (String s : sentences) {
-                String cleanS = s.trim();
-                
-                // 長度限制
-                int minLen = isChinese ? 10 : 15;  
-                int maxLen = 200;
-                
-                if (cleanS.length() < minLen || cleanS.length() > maxLen) continue; 
-                if (seenSentences.contains(cleanS)) continue; 
-
-                int score = calculateScore(cleanS, query, isChinese);
-                
-                if (score > 0) {
-                    scoredSentences.add(new SentenceScore(cleanS, score));
-                    seenSentences.add(cleanS);
+            String text = page.content;
+            if (text == null) continue;
+
+            // 以索引切句，句子只在可能進入前3名時才建立字串
+            int n = text.length();
+            int sentenceStart = 0;
+            for (int i = 0; i <= n; i++) {
+                if (i < n && !isDelimiter(text.charAt(i))) continue;
+
+                int from = sentenceStart;
+                int to = i;
+                sentenceStart = i + 1;
+
+                // 等同移除私用區字元後再 trim
+                while (from < to && isTrimmed(text.charAt(from))) from++;
+                while (to > from && isTrimmed(text.charAt(to - 1))) to--;
+
+                int privateUse = 0;
+                for (int j = from; j < to; j++) {
+                    if (isPrivateUse(text.charAt(j))) privateUse++;
+                }
+                int length = to - from - privateUse;
+                if (length < minLen || length > maxLen) continue;
+
+                scan.reset();
+                if (privateUse == 0) {
+                    scan.feed(text, from, to);
+                } else {
+                    for (int j = from; j < to; j++) {
+                        char c = text.charAt(j);
+                        if (!isPrivateUse(c)) scan.feed(c);
+                    }
                 }
+
+                int score = calculateScore(scan, matcher);
+                if (score <= 0) continue;
+                // 分數不超過目前第3名就不可能入選 (重複的句子分數相同，也一定進不來)
+                if (!best.accepts(score, seq)) continue;
+
+                String sentence = privateUse == 0 ? text.substring(from, to) : stripPrivateUse(text, from, to);
+                if (containsText(texts, best.size(), sentence)) continue;
+
+                texts[best.offer(score, seq++)] = sentence;
             }
         }
 
-        // 分數高到低排序
-        scoredSentences.sort((s1, s2) -> Integer.compare(s2.score, s1.score));
-
+        // 分數高到低，同分依出現順序
         List<String> result = new ArrayList<>();
-        // 取前3句
-        for (int i = 0; i < Math.min(3, scoredSentences.size()); i++) {
-            String text = scoredSentences.get(i).text;
+        for (int slot : best.sortedSlots()) {
+            String text = texts[slot];
             // 補標點
-            if(!text.matches(".*[。！？?!.]$")) {
+            if (!endsWithPunctuation(text)) {
                 text += (isChinese ? "。" : ". ");
             }
             result.add(text);
@@ -111,49 +172,83 @@ public class AiSummaryService {
         return result;
     }
 
-    private int calculateScore(String sentence, String query, boolean isChinese) {
+    private int calculateScore(MultiPatternMatcher.Scan hits, SentenceMatcher m) {
         int score = 0;
-        String lowerS = sentence.toLowerCase();
-        String lowerQ = query.toLowerCase();
 
-        if (lowerS.contains("cookies") || lowerS.contains("login") || lowerS.contains("rights reserved") || lowerS.contains("登入")) return -999;
+        if (m.any(hits, m.boilerplateStart, m.keywordStart)) return -999;
 
-        String[] keywords = lowerQ.split("\\s+");
         int matchCount = 0;
         
-        for (String kw : keywords) {
-            if (kw.length() < 1) continue;
-            if (lowerS.contains(kw)) {
+        for (int i = 0; i < m.keywords.length; i++) {
+            if (m.keywords[i].length() < 1) continue;
+            if (hits.hit(m.keywordStart + i)) {
                 score += 30;
                 matchCount++;
             }
         }
 
         // 如果全部關鍵字都命中，給予額外加分
-        if (matchCount == keywords.length && keywords.length > 0) {
+        if (matchCount == m.keywords.length && m.keywords.length > 0) {
             score += 40;
         }
 
         // 保底
-        for (String gameName : GAME_NAMES) {
-            if (lowerS.contains(gameName)) {
-                score += 10;
-                break;
-            }
+        if (m.any(hits, m.gameStart, m.explainStart)) {
+            score += 10;
         }
 
         // 解釋性詞彙加分
-        String[] explainWords = isChinese 
-            ? new String[]{"是", "為", "意思", "攻略", "技巧", "排名", "最強", "玩法", "介紹"} 
-            : new String[]{"is", "guide", "tips", "intro", "best", "tier", "how to", "build"};
-            
-        for (String w : explainWords) {
-            if (lowerS.contains(w)) score += 5;
-        }
+        score += 5 * m.count(hits, m.explainStart, m.end);
         
         return score;
     }
 
+    // 斷句字元：。！？\n\r?!.
+    private static boolean isDelimiter(char c) {
+        switch (c) {
+            case '。': case '！': case '？':
+            case '\n': case '\r': case '?': case '!': case '.':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isPrivateUse(char c) {
+        return c >= '\uE000' && c <= '\uF8FF';
+    }
+
+    // String.trim() 會去掉的字元，加上本來就要移除的私用區字元
+    private static boolean isTrimmed(char c) {
+        return c <= ' ' || isPrivateUse(c);
+    }
+
+    private static String stripPrivateUse(String text, int from, int to) {
+        StringBuilder sb = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (!isPrivateUse(c)) sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static boolean containsText(String[] texts, int count, String sentence) {
+        for (int i = 0; i < count; i++) {
+            if (texts[i].equals(sentence)) return true;
+        }
+        return false;
+    }
+
+    // 與 text.matches(".*[。！？?!.]$") 相同：最後一字是標點，且中間沒有換行類字元 ('.' 不匹配)
+    private static boolean endsWithPunctuation(String text) {
+        if (text.isEmpty() || "。！？?!.".indexOf(text.charAt(text.length() - 1)) < 0) return false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') return false;
+        }
+        return true;
+    }
+
     private boolean isChinese(String text) {
         for (char c : text.toCharArray()) {
             if (Character.UnicodeBlock.of(c) == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS) {
@@ -163,12 +258,47 @@ public class AiSummaryService {
         return false;
     }
 
-    private static class SentenceScore {
-        String text;
-        int score;
-        public SentenceScore(String text, int score) {
-            this.text = text;
-            this.score = score;
+    /**
+     * 每次查詢只編譯一次的比對器：版權字樣、查詢關鍵字、遊戲名稱、解釋性詞彙
+     * 依序放進同一個 automaton，每個句子只需掃描一次。
+     */
+    private class SentenceMatcher {
+        final String[] keywords;
+        final MultiPatternMatcher matcher;
+        final int boilerplateStart;
+        final int keywordStart;
+        final int gameStart;
+        final int explainStart;
+        final int end;
+
+        SentenceMatcher(String query, boolean isChinese) {
+            this.keywords = query.toLowerCase().split("\\s+");
+            List<String> patterns = new ArrayList<>();
+            boilerplateStart = patterns.size();
+            patterns.addAll(Arrays.asList(BOILERPLATE_WORDS));
+            keywordStart = patterns.size();
+            patterns.addAll(Arrays.asList(keywords));
+            gameStart = patterns.size();
+            patterns.addAll(Arrays.asList(GAME_NAMES));
+            explainStart = patterns.size();
+            patterns.addAll(Arrays.asList(isChinese ? EXPLAIN_WORDS_ZH : EXPLAIN_WORDS_EN));
+            end = patterns.size();
+            this.matcher = new MultiPatternMatcher(patterns);
+        }
+
+        boolean any(MultiPatternMatcher.Scan hits, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (hits.hit(i)) return true;
+            }
+            return false;
+        }
+
+        int count(MultiPatternMatcher.Scan hits, int from, int to) {
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                if (hits.hit(i)) n++;
+            }
+            return n;
         }
     }
 }
\ No newline at end of file
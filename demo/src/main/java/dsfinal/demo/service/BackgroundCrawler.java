@@ -0,0 +1,188 @@
+package dsfinal.demo.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dsfinal.demo.logic.Fetcher;
+import dsfinal.demo.logic.PipelineMetrics;
+import dsfinal.demo.logic.UrlFrontier;
+import dsfinal.demo.model.WebPage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 背景爬蟲：把搜尋時找到的子網頁排進 frontier，在背景慢慢抓取並放進本機索引，
+ * 讓常被搜尋的網站 (fandom、game8 ...) 在使用者查詢前就已經有資料。
+ *
+ * - 優先度 = 子網頁分數 × 網站熱門程度
+ * - 同一網站至少間隔 HOST_DELAY_MS，且一次只抓一頁
+ * - 重抓時帶 If-None-Match / If-Modified-Since，沒變動就不重新索引
+ */
+@Service
+public class BackgroundCrawler {
+
+    private final String DATA_FILE = "crawl_frontier.json";
+
+    private static final int MAX_FRONTIER = 2000;
+    private static final long HOST_DELAY_MS = 2000;
+    private static final int PER_HOST_CONCURRENCY = 1;
+    private static final int MAX_CONCURRENCY = 4;
+    private static final long REVISIT_MS = 6 * 60 * 60 * 1000L;
+
+    @Value("${crawler.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private LocalIndexService localIndex;
+
+    @Autowired
+    private Fetcher fetcher;
+
+    private final UrlFrontier frontier = new UrlFrontier(MAX_FRONTIER, HOST_DELAY_MS, PER_HOST_CONCURRENCY);
+    private final Map<String, AtomicInteger> hostHits = new ConcurrentHashMap<>();
+    private final Semaphore slots = new Semaphore(MAX_CONCURRENCY);
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final PipelineMetrics metrics = PipelineMetrics.get();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        load();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "crawler-scheduler"));
+        workers = Executors.newFixedThreadPool(MAX_CONCURRENCY, r -> daemon(r, "background-crawler"));
+        scheduler.scheduleWithFixedDelay(this::dispatch, 1, 1, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::save, 60, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 記錄一次搜尋命中的網頁，並把它的子網頁排入 frontier。
+     */
+    public void enqueueSubPages(WebPage page) {
+        if (!enabled || page.url == null) return;
+        int hits = hostHits.computeIfAbsent(UrlFrontier.hostOf(page.url), h -> new AtomicInteger()).incrementAndGet();
+        double hostWeight = 1 + Math.log1p(hits);
+        for (WebPage sub : page.subPages) {
+            if (localIndex.contains(sub.url)) continue;
+            frontier.offer(sub.url, sub.topicScore * hostWeight);
+        }
+    }
+
+    public int frontierSize() {
+        return frontier.size();
+    }
+
+    private void dispatch() {
+        try {
+            while (slots.tryAcquire()) {
+                UrlFrontier.Entry entry = frontier.next(System.currentTimeMillis());
+                if (entry == null) {
+                    slots.release();
+                    return;
+                }
+                workers.execute(() -> {
+                    try {
+                        fetch(entry);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            System.err.println(">>> 背景爬蟲排程錯誤: " + e.getMessage());
+        }
+    }
+
+    private void fetch(UrlFrontier.Entry entry) {
+        try (PipelineMetrics.Span span = metrics.start("background.fetch")) {
+            Map<String, String> headers = new HashMap<>();
+            if (entry.etag != null) headers.put("If-None-Match", entry.etag);
+            if (entry.lastModified != null) headers.put("If-Modified-Since", entry.lastModified);
+
+            Fetcher.Result res = fetcher.fetch(entry.url, headers, 5000).join();
+            long next = System.currentTimeMillis() + REVISIT_MS;
+
+            if (res.status == 304) {
+                metrics.increment("background.fetch.not_modified");
+                frontier.complete(entry, next);
+                return;
+            }
+            if (res.page == null) {
+                metrics.increment("background.fetch.failure");
+                frontier.drop(entry);
+                return;
+            }
+
+            metrics.recordValue("background.fetch.bytes", res.page.bytes);
+            metrics.increment("background.fetch.success");
+            localIndex.add(entry.url, res.page.title, res.page.text);
+            entry.etag = res.etag;
+            entry.lastModified = res.lastModified;
+            // 抓過的頁面降低優先度，讓新的網址先抓
+            entry.priority = entry.priority / 2;
+            frontier.complete(entry, next);
+        } catch (Exception e) {
+            metrics.increment("background.fetch.failure");
+            frontier.drop(entry);
+        }
+    }
+
+    private void load() {
+        File file = new File(DATA_FILE);
+        if (!file.exists()) return;
+        try {
+            List<UrlFrontier.Entry> saved = mapper.readValue(file, new TypeReference<List<UrlFrontier.Entry>>(){});
+            frontier.restore(saved);
+            System.out.println(">>> 載入爬蟲佇列，共 " + frontier.size() + " 筆");
+        } catch (IOException e) {
+            System.err.println(">>> 讀取爬蟲佇列失敗: " + e.getMessage());
+        }
+    }
+
+    private void save() {
+        File file = new File(DATA_FILE);
+        if (frontier.size() == 0 && !file.exists()) return;
+        try {
+            File tmp = new File(DATA_FILE + ".tmp");
+            mapper.writeValue(tmp, frontier.snapshot());
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println(">>> 儲存爬蟲佇列失敗: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+        save();
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,402 @@
+package dsfinal.demo.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import dsfinal.demo.model.FavoriteRef;
+import dsfinal.demo.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 以本機檔案保存的使用者資料庫。
+ *
+ * 記憶體內索引：
+ * - 帳號：username -> User
+ * - 收藏：以 (username, url 雜湊, url) 排序的 skip list，加入、移除、查詢都是 O(log n)，
+ *   列出某人的收藏只需掃描該使用者的區段。收藏只存網址與標題。
+ *
+ * 持久化：快照 (users_store.json) + 只附加的操作日誌 (users_data.journal)。
+ * - 每次變動只在日誌附加一行，寫入量與變動大小成正比
+ * - fsync 批次進行 (每 FLUSH_INTERVAL_MS 一次)，最多遺失這段時間內的操作
+ * - 日誌累積 COMPACT_THRESHOLD 筆後寫一次新快照並清空日誌
+ * - 啟動時先載入快照再重播日誌；寫到一半的最後一行會被截掉
+ * - 沒有新格式快照時，自動從舊版 users_data.json 匯入
+ */
+@Service
+public class FileUserRepository implements UserRepository {
+
+    private final String SNAPSHOT_FILE = "users_store.json";
+    private final String LEGACY_FILE = "users_data.json";
+    private final String JOURNAL_FILE = "users_data.journal";
+
+    // 資料檔所在的目錄 (壓力測試時指到 replay/，不影響正式資料)
+    @Value("${users.dir:.}")
+    private String dataDir;
+
+    private static final long FLUSH_INTERVAL_MS = 100;
+    private static final int COMPACT_THRESHOLD = 500;
+
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<FavoriteKey, FavoriteRef> favorites = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private FileChannel journal;
+    private int journalOps = 0;
+    private boolean dirty = false;
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        new File(dataDir).mkdirs();
+        if (new File(dataDir, SNAPSHOT_FILE).exists()) {
+            loadSnapshot();
+        } else {
+            importLegacy();
+        }
+        replayJournal();
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "user-journal-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public User find(String username) {
+        return users.get(username);
+    }
+
+    @Override
+    public int count() {
+        return users.size();
+    }
+
+    @Override
+    public synchronized boolean register(String username, String password) {
+        if (users.containsKey(username)) return false;
+        users.put(username, new User(username, password));
+
+        ObjectNode op = mapper.createObjectNode();
+        op.put("op", "register");
+        op.put("user", username);
+        op.put("password", password);
+        append(op);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addFavorite(String username, String url, String title) {
+        if (!users.containsKey(username) || url == null) return false;
+        FavoriteKey key = new FavoriteKey(username, url);
+        if (favorites.containsKey(key)) return false;
+        favorites.put(key, new FavoriteRef(url, title, sequence.incrementAndGet()));
+
+        ObjectNode op = mapper.createObjectNode();
+        op.put("op", "fav_add");
+        op.put("user", username);
+        op.put("url", url);
+        op.put("title", title);
+        append(op);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean removeFavorite(String username, String url) {
+        if (url == null || favorites.remove(new FavoriteKey(username, url)) == null) return false;
+
+        ObjectNode op = mapper.createObjectNode();
+        op.put("op", "fav_remove");
+        op.put("user", username);
+        op.put("url", url);
+        append(op);
+        return true;
+    }
+
+    @Override
+    public boolean isFavorite(String username, String url) {
+        return url != null && favorites.containsKey(new FavoriteKey(username, url));
+    }
+
+    @Override
+    public List<FavoriteRef> listFavorites(String username) {
+        List<FavoriteRef> list = new ArrayList<>(userRange(username).values());
+        list.sort(Comparator.comparingLong(f -> f.addedAt));
+        return list;
+    }
+
+    // 某使用者的所有收藏 (skip list 中連續的一段)
+    private ConcurrentNavigableMap<FavoriteKey, FavoriteRef> userRange(String username) {
+        return favorites.subMap(FavoriteKey.lowest(username), true, FavoriteKey.highest(username), true);
+    }
+
+    private void apply(JsonNode op) {
+        String username = op.path("user").asText();
+        switch (op.path("op").asText()) {
+            case "register":
+                users.putIfAbsent(username, new User(username, op.path("password").asText()));
+                break;
+            case "fav_add": {
+                // 舊版日誌把整個網頁存在 page 欄位
+                JsonNode ref = op.has("page") ? op.path("page") : op;
+                restoreFavorite(username, ref.path("url").asText(), ref.path("title").asText());
+                break;
+            }
+            case "fav_remove":
+                favorites.remove(new FavoriteKey(username, op.path("url").asText()));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void restoreFavorite(String username, String url, String title) {
+        if (!users.containsKey(username) || url.isEmpty()) return;
+        favorites.putIfAbsent(new FavoriteKey(username, url), new FavoriteRef(url, title, sequence.incrementAndGet()));
+    }
+
+    private void append(ObjectNode op) {
+        try {
+            if (journal == null) openJournal();
+            byte[] line = (mapper.writeValueAsString(op) + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buf = ByteBuffer.wrap(line);
+            while (buf.hasRemaining()) journal.write(buf);
+            dirty = true;
+            if (++journalOps >= COMPACT_THRESHOLD) compact();
+        } catch (IOException e) {
+            System.err.println(">>> 寫入使用者日誌失敗: " + e.getMessage());
+        }
+    }
+
+    // 批次 fsync
+    private synchronized void flush() {
+        if (!dirty || journal == null) return;
+        try {
+            journal.force(false);
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println(">>> 使用者日誌 fsync 失敗: " + e.getMessage());
+        }
+    }
+
+    // 寫入新快照後清空日誌
+    private void compact() throws IOException {
+        File tmp = new File(dataDir, SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap(mapper.writeValueAsBytes(snapshot())));
+            out.force(true);
+        }
+        Files.move(tmp.toPath(), new File(dataDir, SNAPSHOT_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        journal.truncate(0);
+        journal.force(true);
+        journalOps = 0;
+        dirty = false;
+        System.out.println(">>> 使用者資料快照已更新: " + SNAPSHOT_FILE);
+    }
+
+    private ObjectNode snapshot() {
+        ObjectNode root = mapper.createObjectNode();
+        ArrayNode userArray = root.putArray("users");
+        for (User u : users.values()) {
+            userArray.addObject().put("username", u.getUsername()).put("password", u.getPassword());
+        }
+        ArrayNode favArray = root.putArray("favorites");
+        for (Map.Entry<FavoriteKey, FavoriteRef> e : favorites.entrySet()) {
+            favArray.addObject()
+                    .put("user", e.getKey().username)
+                    .put("url", e.getValue().url)
+                    .put("title", e.getValue().title)
+                    .put("addedAt", e.getValue().addedAt);
+        }
+        return root;
+    }
+
+    private void openJournal() throws IOException {
+        journal = FileChannel.open(new File(dataDir, JOURNAL_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void loadSnapshot() {
+        try {
+            JsonNode root = mapper.readTree(new File(dataDir, SNAPSHOT_FILE));
+            for (JsonNode u : root.path("users")) {
+                String username = u.path("username").asText();
+                users.put(username, new User(username, u.path("password").asText()));
+            }
+            long maxSeq = 0;
+            for (JsonNode f : root.path("favorites")) {
+                long addedAt = f.path("addedAt").asLong();
+                String url = f.path("url").asText();
+                favorites.put(new FavoriteKey(f.path("user").asText(), url), new FavoriteRef(url, f.path("title").asText(), addedAt));
+                maxSeq = Math.max(maxSeq, addedAt);
+            }
+            sequence.set(maxSeq);
+            System.out.println(">>> 成功載入使用者資料，共 " + users.size() + " 筆");
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println(">>> 讀取資料失敗，將使用空資料庫");
+        }
+    }
+
+    // 舊版格式：{ username: { username, password, favorites: [WebPage...] } }
+    private void importLegacy() {
+        File file = new File(dataDir, LEGACY_FILE);
+        if (!file.exists()) {
+            System.out.println(">>> 找不到資料檔，將建立新的: " + SNAPSHOT_FILE);
+            return;
+        }
+        try {
+            JsonNode root = mapper.readTree(file);
+            Iterator<Map.Entry<String, JsonNode>> it = root.fields();
+            while (it.hasNext()) {
+                JsonNode u = it.next().getValue();
+                String username = u.path("username").asText();
+                users.put(username, new User(username, u.path("password").asText()));
+                for (JsonNode page : u.path("favorites")) {
+                    restoreFavorite(username, page.path("url").asText(), page.path("title").asText());
+                }
+            }
+            System.out.println(">>> 由 " + LEGACY_FILE + " 匯入使用者資料，共 " + users.size() + " 筆");
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println(">>> 讀取資料失敗，將使用空資料庫");
+        }
+    }
+
+    private void replayJournal() {
+        File file = new File(dataDir, JOURNAL_FILE);
+        if (!file.exists()) return;
+
+        long validBytes = 0;
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    apply(mapper.readTree(line));
+                } catch (IOException e) {
+                    break; // 寫到一半的行，之後的內容都不可信
+                }
+                validBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                replayed++;
+            }
+        } catch (IOException e) {
+            System.err.println(">>> 讀取使用者日誌失敗: " + e.getMessage());
+            return;
+        }
+
+        try {
+            openJournal();
+            if (journal.size() > validBytes) {
+                journal.truncate(validBytes);
+            } else if (journal.size() < validBytes) {
+                // 最後一行少了換行符號
+                journal.write(ByteBuffer.wrap("\n".getBytes(StandardCharsets.UTF_8)));
+            }
+        } catch (IOException e) {
+            System.err.println(">>> 開啟使用者日誌失敗: " + e.getMessage());
+        }
+        journalOps = replayed;
+        System.out.println(">>> 重播使用者日誌，共 " + replayed + " 筆操作");
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (flusher != null) flusher.shutdownNow();
+        flush();
+        try {
+            if (journal != null) journal.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * 收藏的索引 key：(username, url 雜湊, url)。
+     * 雜湊讓比較大多在前兩欄就決定，url 只在雜湊碰撞時才比較。
+     */
+    static final class FavoriteKey implements Comparable<FavoriteKey> {
+        final String username;
+        final long urlHash;
+        final String url;
+
+        FavoriteKey(String username, String url) {
+            this(username, hash(url), url);
+        }
+
+        private FavoriteKey(String username, long urlHash, String url) {
+            this.username = username;
+            this.urlHash = urlHash;
+            this.url = url;
+        }
+
+        static FavoriteKey lowest(String username) {
+            return new FavoriteKey(username, Long.MIN_VALUE, "");
+        }
+
+        // url 欄位為 null 表示比任何網址都大
+        static FavoriteKey highest(String username) {
+            return new FavoriteKey(username, Long.MAX_VALUE, null);
+        }
+
+        @Override
+        public int compareTo(FavoriteKey o) {
+            int c = username.compareTo(o.username);
+            if (c != 0) return c;
+            c = Long.compare(urlHash, o.urlHash);
+            if (c != 0) return c;
+            if (url == null || o.url == null) return url == o.url ? 0 : (url == null ? 1 : -1);
+            return url.compareTo(o.url);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FavoriteKey && compareTo((FavoriteKey) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return username.hashCode() * 31 + Long.hashCode(urlHash);
+        }
+
+        // 64-bit FNV-1a
+        private static long hash(String s) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return h;
+        }
+    }
+}
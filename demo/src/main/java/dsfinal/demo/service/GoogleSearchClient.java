@@ -0,0 +1,188 @@
+package dsfinal.demo.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dsfinal.demo.logic.HttpGateway;
+import dsfinal.demo.logic.PipelineMetrics;
+import dsfinal.demo.logic.ResponseCache;
+import dsfinal.demo.logic.SearchBackend;
+import dsfinal.demo.logic.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Google Custom Search 用戶端，盡量節省每日額度：
+ *
+ * - 原始回應存在本機檔案 (有 TTL)，重新啟動後相同查詢不再呼叫 API
+ * - 同一查詢同時有多個請求時只呼叫一次，其餘等待同一份結果
+ * - 令牌桶限速，超過速率的請求最多等待 rate-wait-ms，等不到就放棄 (由呼叫端改用本機索引)
+ * - 第 11-20 筆只在第一頁可用的結果不足時才查詢
+ */
+@Service
+@ConditionalOnProperty(name = "search.backend", havingValue = "google", matchIfMissing = true)
+public class GoogleSearchClient implements SearchBackend {
+
+    private static final int PAGE_SIZE = 10;
+    // Custom Search 最多只能翻到第 100 筆，這裡只用前兩頁
+    private static final int MAX_RESULTS = 20;
+
+    @Value("${google.base-url:https://www.googleapis.com/customsearch/v1}")
+    private String baseUrl;
+
+    @Value("${google.api-key:}")
+    private String apiKey;
+
+    @Value("${google.search-engine-id:}")
+    private String searchEngineId;
+
+    @Value("${google.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${google.rate-per-minute:60}")
+    private double ratePerMinute;
+
+    @Value("${google.burst:10}")
+    private int burst;
+
+    @Value("${google.rate-wait-ms:2000}")
+    private long rateWaitMs;
+
+    @Value("${google.cache-file:google_cache.ndjson}")
+    private String cacheFile;
+
+    @Value("${google.cache-size:1000}")
+    private int cacheSize;
+
+    @Value("${google.cache-ttl-hours:24}")
+    private long cacheTtlHours;
+
+    @Autowired
+    private HttpGateway http;
+
+    private TokenBucket bucket;
+    private ResponseCache cache;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final PipelineMetrics metrics = PipelineMetrics.get();
+
+    @PostConstruct
+    public void init() {
+        bucket = new TokenBucket(ratePerMinute / 60.0, burst);
+        cache = new ResponseCache(cacheFile, cacheSize, cacheTtlHours * 60 * 60 * 1000L);
+        if (apiKey.isEmpty() || searchEngineId.isEmpty()) {
+            System.err.println(">>> 未設定 google.api-key / google.search-engine-id，Google 搜尋將無法使用");
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Hit>> search(String query, String lr, int wanted) {
+        return collect(query, lr, 1, Math.min(wanted, MAX_RESULTS), new ArrayList<>(), new HashSet<>());
+    }
+
+    @Override
+    public int cacheSize() {
+        return cache.size();
+    }
+
+    // 依序查詢各頁，直到結果足夠或沒有下一頁
+    private CompletableFuture<List<Hit>> collect(String query, String lr, int start, int target, List<Hit> results, Set<String> seen) {
+        if (start > 1) metrics.increment("google.api.next_page");
+        return fetchPage(query, lr, start).thenCompose(root -> {
+            for (JsonNode item : root.path("items")) {
+                String link = item.path("link").asText("");
+                if (link.isEmpty() || !seen.add(link)) continue;
+                results.add(new Hit(item.path("title").asText(), link, item.path("snippet").asText()));
+                if (results.size() == target) break;
+            }
+            boolean hasNext = !root.path("queries").path("nextPage").isMissingNode();
+            if (results.size() >= target || !hasNext || start + PAGE_SIZE > MAX_RESULTS) {
+                return CompletableFuture.completedFuture(results);
+            }
+            return collect(query, lr, start + PAGE_SIZE, target, results, seen);
+        });
+    }
+
+    private CompletableFuture<JsonNode> fetchPage(String query, String lr, int start) {
+        String key = (lr == null ? "" : lr) + "|" + start + "|" + query;
+        String body = cache.get(key);
+        CompletableFuture<String> pending;
+        if (body != null) {
+            metrics.increment("google.cache.hit");
+            pending = CompletableFuture.completedFuture(body);
+        } else {
+            pending = coalesced(key, query, lr, start);
+        }
+        return pending.thenApply(json -> {
+            try {
+                return mapper.readTree(json);
+            } catch (Exception e) {
+                throw new IllegalStateException("Google 回應格式錯誤", e);
+            }
+        });
+    }
+
+    // 同一 key 只有第一個請求真的呼叫 API，其餘共用它的 future
+    private CompletableFuture<String> coalesced(String key, String query, String lr, int start) {
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            metrics.increment("google.coalesced");
+            return running;
+        }
+
+        // 取得呼叫權後再查一次，避免剛好錯過前一次的寫入
+        String cached = cache.get(key);
+        CompletableFuture<String> call = cached != null ? CompletableFuture.completedFuture(cached) : call(query, lr, start);
+        call.whenComplete((body, err) -> {
+            if (err == null && cached == null) cache.put(key, body);
+            inFlight.remove(key, mine);
+            if (err != null) mine.completeExceptionally(err);
+            else mine.complete(body);
+        });
+        return mine;
+    }
+
+    private CompletableFuture<String> call(String query, String lr, int start) {
+        if (apiKey.isEmpty() || searchEngineId.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("未設定 Google API Key"));
+        }
+        long waitNanos = bucket.tryReserve(rateWaitMs);
+        if (waitNanos < 0) {
+            metrics.increment("google.api.rate_limited");
+            return CompletableFuture.failedFuture(new IllegalStateException("Google API 超過速率限制"));
+        }
+
+        StringBuilder url = new StringBuilder(baseUrl)
+                .append("?key=").append(HttpGateway.encode(apiKey))
+                .append("&cx=").append(HttpGateway.encode(searchEngineId))
+                .append("&q=").append(HttpGateway.encode(query));
+        if (lr != null) url.append("&lr=").append(HttpGateway.encode(lr));
+        if (start > 1) url.append("&start=").append(start);
+
+        metrics.increment("google.api.request");
+        if (waitNanos == 0) return http.getString(url.toString(), timeoutMs);
+        // 等待令牌時不占用執行緒
+        return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS))
+                .thenCompose(v -> http.getString(url.toString(), timeoutMs));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (cache != null) cache.close();
+    }
+}
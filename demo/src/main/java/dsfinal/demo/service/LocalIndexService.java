@@ -0,0 +1,156 @@
+package dsfinal.demo.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import dsfinal.demo.logic.InvertedIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 本機索引：保存爬取過的網頁，Google 額度用完或重複主題時可直接由本機回答。
+ * 索引本身在記憶體，文件另以 NDJSON 逐行附加到檔案，啟動時重播。
+ * 內容沒變的文件不再寫入；檔案行數超過有效文件數的兩倍時，改寫為只有有效文件的新檔。
+ */
+@Service
+public class LocalIndexService {
+
+    @Value("${local-index.file:local_index.ndjson}")
+    private String dataFile;
+    // 每篇保存的內文上限，避免索引檔無限制變大
+    private static final int MAX_CONTENT_CHARS = 20000;
+    // 行數少於此值時不改寫
+    private static final int MIN_COMPACT_LINES = 64;
+
+    private final InvertedIndex index = new InvertedIndex();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private BufferedWriter writer;
+    // 資料檔目前的行數
+    private int lineCount;
+
+    @PostConstruct
+    public void init() {
+        File file = new File(dataFile);
+        if (!file.exists()) return;
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                try {
+                    JsonNode node = mapper.readTree(line);
+                    index.add(node.path("url").asText(), node.path("title").asText(), node.path("content").asText());
+                } catch (IOException e) {
+                    // 寫到一半的行直接略過
+                }
+            }
+            System.out.println(">>> 載入本機索引，共 " + index.size() + " 篇");
+        } catch (IOException e) {
+            System.err.println(">>> 讀取本機索引失敗: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            if (needsCompaction()) compact();
+        }
+    }
+
+    public void add(String url, String title, String content) {
+        if (url == null || url.isEmpty() || content == null || content.isEmpty()) return;
+        String stored = content.length() > MAX_CONTENT_CHARS ? content.substring(0, MAX_CONTENT_CHARS) : content;
+        if (index.add(url, title, stored)) append(url, title, stored);
+    }
+
+    public boolean contains(String url) {
+        return index.contains(url);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /** 記憶體中保存的文件數，包含尚未清掉的舊版本 */
+    public int storedCount() {
+        return index.storedCount();
+    }
+
+    public List<InvertedIndex.Hit> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    private synchronized void append(String url, String title, String content) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(new File(dataFile).toPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(formatLine(url, title, content));
+            writer.newLine();
+            writer.flush();
+            lineCount++;
+        } catch (IOException e) {
+            System.err.println(">>> 本機索引寫入失敗: " + e.getMessage());
+        }
+        if (needsCompaction()) compact();
+    }
+
+    private boolean needsCompaction() {
+        return lineCount >= MIN_COMPACT_LINES && lineCount > index.size() * 2;
+    }
+
+    // 先寫暫存檔再取代，寫到一半中斷時原檔不受影響
+    private void compact() {
+        File file = new File(dataFile);
+        File tmp = new File(dataFile + ".tmp");
+        List<InvertedIndex.Hit> docs = index.documents();
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+            try (BufferedWriter out = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                for (InvertedIndex.Hit doc : docs) {
+                    out.write(formatLine(doc.url, doc.title, doc.content));
+                    out.newLine();
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lineCount = docs.size();
+        } catch (IOException e) {
+            System.err.println(">>> 本機索引壓縮失敗: " + e.getMessage());
+        }
+    }
+
+    public synchronized long fileSize() {
+        File file = new File(dataFile);
+        return file.exists() ? file.length() : 0;
+    }
+
+    private String formatLine(String url, String title, String content) throws IOException {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("url", url);
+        node.put("title", title);
+        node.put("content", content);
+        return mapper.writeValueAsString(node);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            if (writer != null) writer.close();
+        } catch (IOException ignored) {}
+    }
+}
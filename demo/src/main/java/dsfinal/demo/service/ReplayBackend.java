@@ -0,0 +1,227 @@
+package dsfinal.demo.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dsfinal.demo.logic.Fetcher;
+import dsfinal.demo.logic.HtmlExtractor;
+import dsfinal.demo.logic.InvertedIndex;
+import dsfinal.demo.logic.SearchBackend;
+import dsfinal.demo.logic.Translator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 離線替身 (search.backend=replay)：從 replay.dir 讀取事先記錄的查詢與網頁，
+ * 以設定的延遲模擬 Google、網頁爬取與翻譯，讓整個搜尋流程可以在沒有網路時做壓力測試。
+ *
+ * replay.dir 內的檔案 (都可省略)：
+ * - google_cache.ndjson：GoogleSearchClient 的回應快取，直接複製即可
+ * - local_index.ndjson：本機索引檔，每行 {url, title, content}
+ * - pages.ndjson：每行 {url, title, html}，有原始 HTML 時子網頁連結也能重現
+ *
+ * 沒有記錄的查詢改以 BM25 從網頁中挑選結果；沒有記錄的網址回傳 404。
+ */
+@Service
+@ConditionalOnProperty(name = "search.backend", havingValue = "replay")
+public class ReplayBackend implements SearchBackend, Fetcher, Translator {
+
+    // 與 GoogleSearchClient 相同，最多兩頁
+    private static final int MAX_RESULTS = 20;
+    private static final int SNIPPET_CHARS = 160;
+    private static final int EXTRACT_THREADS = 10;
+
+    @Value("${replay.dir:replay}")
+    private String dir;
+
+    @Value("${replay.search-latency-ms:300}")
+    private long searchLatencyMs;
+
+    @Value("${replay.fetch-latency-ms:200}")
+    private long fetchLatencyMs;
+
+    @Value("${replay.translate-latency-ms:150}")
+    private long translateLatencyMs;
+
+    // 延遲的隨機浮動比例 (0.3 表示 ±30%)
+    @Value("${replay.jitter:0.3}")
+    private double jitter;
+
+    private final Map<String, List<Hit>> queries = new HashMap<>();
+    private final Map<String, String> pages = new HashMap<>();
+    private final InvertedIndex index = new InvertedIndex();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(EXTRACT_THREADS, r -> {
+            Thread t = new Thread(r, "replay-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        loadQueries(new File(dir, "google_cache.ndjson"));
+        loadPages(new File(dir, "local_index.ndjson"));
+        loadPages(new File(dir, "pages.ndjson"));
+        System.out.println(">>> 離線重播：" + queries.size() + " 個查詢、" + pages.size() + " 個網頁 (" + new File(dir).getAbsolutePath() + ")");
+    }
+
+    @Override
+    public CompletableFuture<List<Hit>> search(String query, String lr, int wanted) {
+        return CompletableFuture.supplyAsync(() -> lookup(query, lr, wanted),
+                CompletableFuture.delayedExecutor(latency(searchLatencyMs), TimeUnit.MILLISECONDS, executor));
+    }
+
+    private List<Hit> lookup(String query, String lr, int wanted) {
+        int target = Math.min(wanted, MAX_RESULTS);
+        List<Hit> recorded = queries.get(queryKey(lr, query));
+        if (recorded != null) {
+            return new ArrayList<>(recorded.subList(0, Math.min(target, recorded.size())));
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (InvertedIndex.Hit hit : index.search(query, target)) {
+            String snippet = hit.content.length() > SNIPPET_CHARS ? hit.content.substring(0, SNIPPET_CHARS) : hit.content;
+            hits.add(new Hit(hit.title, hit.url, snippet));
+        }
+        return hits;
+    }
+
+    @Override
+    public int cacheSize() {
+        return queries.size();
+    }
+
+    @Override
+    public CompletableFuture<Result> fetch(String url, Map<String, String> headers, long timeoutMs) {
+        long latency = latency(fetchLatencyMs);
+        if (latency > timeoutMs) {
+            return CompletableFuture.<Result>supplyAsync(() -> {
+                throw new IllegalStateException("replay timeout: " + url);
+            }, CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS, executor));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            String html = pages.get(url);
+            if (html == null) return new Result(404, url, null, null, null, false);
+            HtmlExtractor.Page page = HtmlExtractor.extract(html, url);
+            return new Result(200, url, null, null, page, page.truncated);
+        }, CompletableFuture.delayedExecutor(latency, TimeUnit.MILLISECONDS, executor));
+    }
+
+    // 沒有記錄翻譯：回傳空字串表示「沒有不同的譯文」，與翻譯 API 查無結果相同
+    @Override
+    public CompletableFuture<String> translate(String text, String targetLang) {
+        return CompletableFuture.supplyAsync(() -> "",
+                CompletableFuture.delayedExecutor(latency(translateLatencyMs), TimeUnit.MILLISECONDS, executor));
+    }
+
+    private long latency(long base) {
+        if (base <= 0) return 0;
+        double factor = 1 + jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        return Math.max(0, Math.round(base * factor));
+    }
+
+    private static String queryKey(String lr, String query) {
+        return (lr == null ? "" : lr) + "|" + query;
+    }
+
+    // GoogleSearchClient 的快取格式：key = lr|start|query，body 為原始回應
+    private void loadQueries(File file) {
+        if (!file.exists()) return;
+        Map<String, TreeMap<Integer, JsonNode>> byQuery = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    JsonNode node = mapper.readTree(line);
+                    String[] parts = node.path("key").asText("").split("\\|", 3);
+                    if (parts.length < 3) continue;
+                    JsonNode body = mapper.readTree(node.path("body").asText());
+                    byQuery.computeIfAbsent(queryKey(parts[0].isEmpty() ? null : parts[0], parts[2]), k -> new TreeMap<>())
+                            .put(Integer.parseInt(parts[1]), body.path("items"));
+                } catch (IOException | NumberFormatException e) {
+                    // 寫到一半的行直接略過
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(">>> 讀取重播查詢失敗: " + e.getMessage());
+        }
+
+        byQuery.forEach((key, byStart) -> {
+            List<Hit> hits = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (JsonNode items : byStart.values()) {
+                for (JsonNode item : items) {
+                    String link = item.path("link").asText("");
+                    if (link.isEmpty() || !seen.add(link)) continue;
+                    hits.add(new Hit(item.path("title").asText(), link, item.path("snippet").asText()));
+                }
+            }
+            queries.put(key, hits);
+        });
+    }
+
+    // 只有內文時包成最簡單的 HTML，爬取時一樣經過 HtmlExtractor
+    private void loadPages(File file) {
+        if (!file.exists()) return;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    JsonNode node = mapper.readTree(line);
+                    String url = node.path("url").asText("");
+                    if (url.isEmpty()) continue;
+                    String title = node.path("title").asText("");
+                    String html = node.path("html").asText(null);
+                    String text;
+                    if (html != null) {
+                        text = HtmlExtractor.extract(html, url).text;
+                    } else {
+                        text = node.path("content").asText("");
+                        html = "<html><head><title>" + escape(title) + "</title></head><body><p>" + escape(text) + "</p></body></html>";
+                    }
+                    pages.put(url, html);
+                    index.add(url, title, text);
+                } catch (IOException e) {
+                    // 寫到一半的行直接略過
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(">>> 讀取重播網頁失敗: " + e.getMessage());
+        }
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
@@ -0,0 +1,18 @@
+package dsfinal.demo.service;
+
+import java.util.List;
+
+import dsfinal.demo.model.WebPage;
+
+/**
+ * 搜尋過程的進度通知，供串流搜尋使用。
+ * 回呼時傳入的網頁物件之後仍會被修改，需要保留內容時請當下序列化。
+ */
+public interface SearchListener {
+
+    /** 只用 Google 摘要評分的初步排序 */
+    default void onSnippets(List<WebPage> ranked) {}
+
+    /** 某個網頁爬取完成並重新評分，ranked 為目前的排序 */
+    default void onPageCrawled(WebPage page, List<WebPage> ranked) {}
+}
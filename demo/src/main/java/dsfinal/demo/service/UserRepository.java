@@ -0,0 +1,30 @@
+package dsfinal.demo.service;
+
+import java.util.List;
+
+import dsfinal.demo.model.FavoriteRef;
+import dsfinal.demo.model.User;
+
+/**
+ * 使用者與收藏的儲存介面。
+ */
+public interface UserRepository {
+
+    User find(String username);
+
+    /** 註冊新帳號，帳號已存在時回傳 false */
+    boolean register(String username, String password);
+
+    /** 加入收藏，已收藏過回傳 false */
+    boolean addFavorite(String username, String url, String title);
+
+    /** 移除收藏，原本沒有收藏回傳 false */
+    boolean removeFavorite(String username, String url);
+
+    boolean isFavorite(String username, String url);
+
+    /** 依加入順序列出收藏 */
+    List<FavoriteRef> listFavorites(String username);
+
+    int count();
+}
@@ -0,0 +1,76 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class FuzzyMatcherTests {
+
+	// 逐欄計算的動態規劃 (第 0 列全為 0)，結束位置的選法與 FuzzyMatcher 相同
+	private static int bruteForceEnd(String pattern, String text, int maxErrors) {
+		int m = pattern.length();
+		int[] col = new int[m + 1];
+		for (int i = 0; i <= m; i++) col[i] = i;
+		int best = maxErrors + 1;
+		int bestEnd = -1;
+		boolean inRun = false;
+		for (int j = 0; j < text.length(); j++) {
+			int diag = col[0];
+			col[0] = 0;
+			for (int i = 1; i <= m; i++) {
+				int up = col[i];
+				int cost = pattern.charAt(i - 1) == text.charAt(j) ? 0 : 1;
+				col[i] = Math.min(Math.min(col[i - 1] + 1, up + 1), diag + cost);
+				diag = up;
+			}
+			if (col[m] < best) {
+				best = col[m];
+				bestEnd = j + 1;
+				inRun = true;
+			} else if (inRun && col[m] == best) {
+				bestEnd = j + 1;
+			} else {
+				inRun = false;
+			}
+		}
+		return bestEnd;
+	}
+
+	private static String randomText(Random random, String alphabet, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		return sb.toString();
+	}
+
+	@Test
+	void sameAsDynamicProgramming() {
+		Random random = new Random(7);
+		for (int round = 0; round < 2000; round++) {
+			// 偶爾用超過 64 字的 pattern 測多區塊
+			int m = round % 10 == 0 ? 60 + random.nextInt(100) : 1 + random.nextInt(12);
+			String pattern = randomText(random, "abcd荒野", m);
+			String text = random.nextBoolean()
+					? randomText(random, "abcd荒野 ", random.nextInt(200))
+					: randomText(random, "ab", 5) + pattern + randomText(random, "cd", 5);
+			int k = random.nextInt(m / 2 + 2);
+			assertEquals(bruteForceEnd(pattern, text, k), new FuzzyMatcher(pattern, k).findEnd(text),
+					pattern + " / " + text + " / " + k);
+		}
+	}
+
+	@Test
+	void handlesInsertionsAndDeletions() {
+		FuzzyMatcher matcher = new FuzzyMatcher("荒野亂鬥", 1);
+		// 少一個字
+		assertEquals(3, matcher.findEnd("荒亂鬥 攻略"));
+		// 多一個字
+		assertEquals(5, matcher.findEnd("荒野x亂鬥 攻略"));
+		// 錯字
+		assertEquals(4, matcher.findEnd("荒也亂鬥 攻略"));
+		assertEquals(-1, matcher.findEnd("完全無關的標題"));
+
+		assertEquals(2, new FuzzyMatcher("荒野", 1).findEnd("荒也攻略"));
+	}
+}
@@ -0,0 +1,66 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+class HtmlExtractorTests {
+
+	private static final String URL = "https://forum.gamer.com.tw/C.php?bsn=32407";
+
+	@Test
+	void streamMatchesDom() {
+		String[] pages = {
+			"<!DOCTYPE html><html><head><title> 雪莉 &amp; 攻略 </title><script>if (a < b) {}</script></head>"
+				+ "<body><p>荒野亂鬥&nbsp;&nbsp;雪莉 &lt;攻略&gt;</p><!-- <a href=/hidden>x</a> -->"
+				+ "<div>x<b>y</b>z</div><a href=\"/C.php?bsn=1&amp;snA=2\">子網頁 <i>一</i></a>"
+				+ "<a href='https://other.com/'>外站</a><br>結尾 3 < 4</body></html>",
+			"<title>T</title><ul><li>a</li><li>b</li></ul><a HREF=rel/x.html>相對</a><style>.a{}</style>t",
+		};
+		for (String html : pages) {
+			HtmlExtractor.Page dom = HtmlExtractor.fromDocument(Jsoup.parse(html, URL), 0, false);
+			HtmlExtractor.Page stream = HtmlExtractor.extract(html, URL);
+
+			assertEquals(dom.title, stream.title);
+			assertEquals(dom.text, stream.text);
+			assertEquals(dom.links.size(), stream.links.size());
+			for (int i = 0; i < dom.links.size(); i++) {
+				assertEquals(dom.links.get(i).url, stream.links.get(i).url);
+				assertEquals(dom.links.get(i).text, stream.links.get(i).text);
+			}
+		}
+	}
+
+	@Test
+	void keepsOnlySameSiteLinks() {
+		HtmlExtractor.Page page = HtmlExtractor.extract(
+				"<a href=/a>站內</a><a href=https://example.com/b>外站</a><a href=javascript:void(0)>js</a>", URL);
+		assertEquals(1, page.links.size());
+		assertEquals("https://forum.gamer.com.tw/a", page.links.get(0).url);
+	}
+
+	@Test
+	void detectsMetaCharsetWithoutContentType() throws IOException {
+		String[] heads = {
+			"<meta charset=\"big5\">",
+			"<meta http-equiv=\"Content-Type\" content=\"text/html; charset=Big5\">",
+		};
+		for (String head : heads) {
+			String html = "<html><head>" + head + "<title>巴哈姆特 攻略</title></head><body><p>荒野亂鬥 雪莉</p></body></html>";
+			byte[] big5 = html.getBytes(Charset.forName("Big5"));
+
+			HtmlExtractor.Page stream = HtmlExtractor.read(new ByteArrayInputStream(big5), null, URL, 1 << 20, true);
+			HtmlExtractor.Page dom = HtmlExtractor.read(new ByteArrayInputStream(big5), null, URL, 1 << 20, false);
+			assertEquals("巴哈姆特 攻略", stream.title);
+			assertEquals("荒野亂鬥 雪莉", stream.text);
+			assertEquals(dom.title, stream.title);
+			assertEquals(dom.text, stream.text);
+			assertEquals(big5.length, stream.bytes);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class InvertedIndexTests {
+
+	@Test
+	void reAddingUrlKeepsScoresPositiveAndUnchanged() {
+		InvertedIndex index = new InvertedIndex();
+		index.add("https://a.com/1", "荒野亂鬥 攻略", "雪莉 角色 攻略 推薦");
+		index.add("https://a.com/2", "Brawl Stars", "tier list 攻略");
+		List<InvertedIndex.Hit> before = index.search("攻略 雪莉", 10);
+
+		// 交替兩種內容，每次都會把舊版本標記為刪除 (次數少於重建的門檻)
+		for (int i = 0; i < 50; i++) {
+			index.add("https://a.com/1", "荒野亂鬥 攻略", i % 2 == 0 ? "雪莉 角色 攻略 更新" : "雪莉 角色 攻略 推薦");
+		}
+		List<InvertedIndex.Hit> after = index.search("攻略 雪莉", 10);
+
+		assertEquals(before.size(), after.size());
+		for (int i = 0; i < before.size(); i++) {
+			assertEquals(before.get(i).url, after.get(i).url);
+			assertTrue(after.get(i).score > 0, "score " + after.get(i).score);
+			assertEquals(before.get(i).score, after.get(i).score, 1e-9);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class KeywordModelTests {
+
+	@Test
+	void sketchNeverUnderestimates() {
+		CountMinSketch sketch = new CountMinSketch(4, 1 << 8);
+		Map<Long, Integer> exact = new HashMap<>();
+		Random random = new Random(3);
+		for (int i = 0; i < 5000; i++) {
+			long key = random.nextInt(2000) * 0x9E3779B97F4A7C15L;
+			int count = 1 + random.nextInt(3);
+			sketch.add(key, count);
+			exact.merge(key, count, Integer::sum);
+		}
+		exact.forEach((key, count) -> assertTrue(sketch.estimate(key) >= count));
+	}
+
+	@Test
+	void accumulatesAcrossSearchesAndSurvivesRestart(@TempDir File dir) {
+		String file = new File(dir, "keyword_model.bin").getPath();
+		KeywordModel model = new KeywordModel(file);
+		model.observe("荒野", counts("攻略", 3, "角色", 1));
+		model.observe("荒野", counts("攻略", 1, "版本", 2));
+
+		// 這次沒有找到任何候選時，仍然有過去的結果
+		StringIntMap related = new StringIntMap(4);
+		model.addRelated("荒野", related);
+		assertEquals(3, related.size());
+		assertEquals(4, related.get("攻略"));
+		assertEquals(1, related.get("角色"));
+		assertEquals(2, related.get("版本"));
+
+		StringIntMap current = counts("新角色", 1);
+		model.addRelated("荒野", current);
+		assertEquals(4, current.size());
+		assertEquals(1, current.get("新角色"));
+
+		StringIntMap other = new StringIntMap(4);
+		model.addRelated("原神", other);
+		assertTrue(other.isEmpty());
+		model.close();
+
+		KeywordModel restored = new KeywordModel(file);
+		assertEquals(1, restored.anchorCount());
+		assertEquals(4, restored.estimate("荒野", "攻略"));
+		StringIntMap reloaded = new StringIntMap(4);
+		restored.addRelated("荒野", reloaded);
+		assertEquals(3, reloaded.size());
+		assertEquals(2, reloaded.get("版本"));
+	}
+
+	private static StringIntMap counts(String k1, int v1, String k2, int v2) {
+		StringIntMap map = counts(k1, v1);
+		map.add(k2, v2);
+		return map;
+	}
+
+	private static StringIntMap counts(String k1, int v1) {
+		StringIntMap map = new StringIntMap(4);
+		map.add(k1, v1);
+		return map;
+	}
+}
@@ -0,0 +1,60 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MultiPatternMatcherTests {
+
+	@Test
+	void matchesSameAsContains() {
+		Random random = new Random(42);
+		String alphabet = "abAB荒野亂鬥 ";
+		for (int round = 0; round < 500; round++) {
+			List<String> patterns = new ArrayList<>();
+			int n = 1 + random.nextInt(8);
+			for (int i = 0; i < n; i++) patterns.add(randomText(random, alphabet, random.nextInt(4)));
+			String text = randomText(random, alphabet, random.nextInt(30));
+
+			BitSet hits = new MultiPatternMatcher(patterns).scan(text);
+			for (int i = 0; i < n; i++) {
+				boolean expected = text.toLowerCase().contains(patterns.get(i).toLowerCase());
+				assertEquals(expected, hits.get(i), "pattern '" + patterns.get(i) + "' in '" + text + "'");
+			}
+		}
+	}
+
+	@Test
+	void scanCanBeFedInParts() {
+		MultiPatternMatcher matcher = new MultiPatternMatcher(List.of("brawl stars", "攻略"));
+		MultiPatternMatcher.Scan scan = matcher.newScan();
+		scan.feed("Brawl");
+		assertEquals(false, scan.hit(0));
+		scan.feed(' ').feed("Stars 攻略");
+		assertEquals(true, scan.hit(0));
+		assertEquals(true, scan.hit(1));
+	}
+
+	@Test
+	void resetClearsPreviousText() {
+		MultiPatternMatcher matcher = new MultiPatternMatcher(List.of("shelly", "", "ly 攻"));
+		MultiPatternMatcher.Scan scan = matcher.newScan();
+		scan.feed("Shelly");
+		scan.reset().feed(" 攻略");
+		assertEquals(false, scan.hit(0));
+		assertEquals(true, scan.hit(1));
+		assertEquals(false, scan.hit(2));
+		assertEquals(scan.hits(), matcher.scan(" 攻略"));
+	}
+
+	private static String randomText(Random random, String alphabet, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,31 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dsfinal.demo.model.WebPage;
+
+class SemanticAnalyzerTests {
+
+	@Test
+	void fuzzyEndBeyondOriginalTitleIsIgnored() {
+		// İ 轉小寫後變成兩個字元，小寫標題上的模糊比對結尾會超出原標題的長度，這樣的標題直接略過
+		SemanticAnalyzer analyzer = new SemanticAnalyzer();
+		List<WebPage> expanded = List.of(
+				new WebPage("https://a.com/1", "İİİİ荒野"),
+				new WebPage("https://a.com/2", "İİİİ荒野"));
+		assertEquals(List.of(), analyzer.deriveRelatedKeywords(expanded, "荒也"));
+		assertEquals(List.of(), analyzer.deriveRelatedKeywords(expanded, "荒也 攻略"));
+
+		// 其他標題照常產生建議
+		List<WebPage> mixed = List.of(
+				new WebPage("https://a.com/1", "İİİİ荒野"),
+				new WebPage("https://a.com/2", "荒野亂鬥 攻略"),
+				new WebPage("https://a.com/3", "荒野亂鬥 角色"));
+		assertEquals(List.of("荒也 亂鬥"), analyzer.deriveRelatedKeywords(mixed, "荒也"));
+		assertEquals(List.of("荒也 亂鬥"), analyzer.deriveRelatedKeywords(mixed, "荒也 攻略"));
+	}
+}
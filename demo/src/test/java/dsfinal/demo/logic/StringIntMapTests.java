@@ -0,0 +1,58 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class StringIntMapTests {
+
+	@Test
+	void sameCountsAsHashMap() {
+		Random random = new Random(5);
+		StringIntMap map = new StringIntMap(4);
+		for (int round = 0; round < 3; round++) {
+			Map<String, Integer> expected = new HashMap<>();
+			String text = "荒野亂鬥攻略角色推薦abcdef";
+			for (int i = 0; i < 5000; i++) {
+				int from = random.nextInt(text.length());
+				int to = from + random.nextInt(text.length() - from + 1);
+				int delta = 1 + random.nextInt(3);
+				String key = text.substring(from, to);
+				expected.merge(key, delta, Integer::sum);
+				// 區間與整個字串兩種介面累加的是同一個 key
+				if (random.nextBoolean()) map.add(text, from, to, delta);
+				else map.add(key, delta);
+			}
+
+			assertEquals(expected.size(), map.size());
+			for (int i = 0; i < map.size(); i++) {
+				assertEquals(expected.get(map.key(i)), map.value(i));
+			}
+			expected.forEach((k, v) -> assertEquals(v, map.get(k)));
+
+			// clear 後重複使用
+			map.clear();
+			assertEquals(0, map.size());
+			assertFalse(map.containsKey("荒野"));
+		}
+	}
+
+	@Test
+	void putAndInsertionOrder() {
+		StringIntMap map = new StringIntMap(2);
+		map.put("b", 2);
+		map.add("a", 1);
+		map.put("b", 5);
+		assertEquals("b", map.key(0));
+		assertEquals("a", map.key(1));
+		assertEquals(5, map.get("b"));
+		assertEquals(0, map.get("c"));
+		assertTrue(map.containsKey("a"));
+	}
+}
@@ -0,0 +1,83 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class SuggestionIndexTests {
+
+	@Test
+	void trieMatchesLinearScan() {
+		Random random = new Random(11);
+		String alphabet = "ab 荒野한국ع";
+		for (int round = 0; round < 200; round++) {
+			Map<String, Integer> data = new LinkedHashMap<>();
+			int n = random.nextInt(60);
+			for (int i = 0; i < n; i++) {
+				StringBuilder sb = new StringBuilder();
+				int len = 1 + random.nextInt(6);
+				for (int j = 0; j < len; j++) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+				data.put(sb.toString(), random.nextInt(5));
+			}
+			List<String> keys = new ArrayList<>(data.keySet());
+			CompletionTrie trie = CompletionTrie.build(keys, keys, new ArrayList<>(data.values()), 5);
+
+			for (int q = 0; q < 20; q++) {
+				String prefix = q == 0 ? "" : keys.isEmpty() ? "a" : keys.get(random.nextInt(keys.size()));
+				prefix = prefix.substring(0, random.nextInt(prefix.length() + 1));
+				String p = prefix;
+				List<String> expected = data.entrySet().stream()
+						.filter(e -> e.getKey().startsWith(p))
+						.sorted(Comparator.<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue).reversed()
+								.thenComparing(Map.Entry::getKey))
+						.limit(3)
+						.map(Map.Entry::getKey)
+						.collect(Collectors.toList());
+				assertEquals(expected, trie.complete(prefix, 3), prefix);
+			}
+		}
+	}
+
+	@Test
+	void normalizedPrefixesForMixedScripts() {
+		SuggestionIndex index = new SuggestionIndex();
+		index.recordAll(Map.of(
+				"Brawl Stars 攻略", 5,
+				"brawl stars 角色", 3,
+				"荒野亂鬥 攻略", 4,
+				"한국어 가이드", 2,
+				"مرحبا بالعالم", 1));
+
+		assertEquals(List.of("Brawl Stars 攻略", "brawl stars 角色"), index.suggest("BRAWL", 10));
+		// 全形英文字母
+		assertEquals(List.of("Brawl Stars 攻略", "brawl stars 角色"), index.suggest("ｂｒａｗｌ　ｓｔ", 10));
+		assertEquals(List.of("荒野亂鬥 攻略"), index.suggest("荒野", 10));
+		assertEquals(List.of("한국어 가이드"), index.suggest("한국", 10));
+		// 加上母音符號的阿拉伯文
+		assertEquals(List.of("مرحبا بالعالم"), index.suggest("مَرْحَبًا", 10));
+		assertEquals(List.of("Brawl Stars 攻略"), index.suggest("brawl", 1));
+		assertEquals(List.of(), index.suggest("brawlx", 10));
+	}
+
+	@Test
+	void staysBoundedWhenWeightsAreEqual() {
+		SuggestionIndex index = new SuggestionIndex();
+		for (int round = 0; round < 3; round++) {
+			Map<String, Integer> batch = new LinkedHashMap<>();
+			for (int i = 0; i < 15000; i++) batch.put("phrase " + round + " " + i, 1);
+			index.recordAll(batch);
+			assertTrue(index.size() <= SuggestionIndex.MAX_PHRASES, "size " + index.size());
+		}
+		// 最新加入的一批不會被淘汰
+		assertEquals(List.of("phrase 2 14999"), index.suggest("phrase 2 14999", 10));
+	}
+}
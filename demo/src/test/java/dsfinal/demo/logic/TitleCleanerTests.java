@@ -0,0 +1,68 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TitleCleanerTests {
+
+	// 改寫前 SemanticAnalyzer 的清洗方式
+	private static String regexClean(String raw) {
+		String s = raw.replaceAll("(?i)(\\s*[-|–:_]\\s*).*$", "")
+				.replaceAll("【.*?】", " ")
+				.replaceAll("\\[.*?\\]", " ")
+				.replaceAll("\\(.*?\\)", " ")
+				.replaceAll("《.*?》", " ");
+		s = s.replaceAll("[^\\p{L}\\p{N}\\p{M}\\s]", " ");
+		return s.trim().replaceAll("\\s+", " ");
+	}
+
+	@Test
+	void sameResultAsRegexChain() {
+		List<String> titles = List.of(
+				"荒野亂鬥 攻略【2024最新】角色推薦 - 巴哈姆特",
+				"Brawl Stars Tier List (June) | Best Brawlers",
+				"《原神》新手教學：快速上手",
+				"  Tiếng Việt   có dấu  [wiki]  ",
+				"C++ 入門 & 範例！！ 🎮 第 2 章",
+				"未閉合的括號 (沒有結尾 與 【開頭",
+				"Ｆｕｌｌｗｉｄｔｈ　全形空白　測試",
+				"a_b",
+				"",
+				"- 只有後綴");
+		for (String title : titles) {
+			assertEquals(regexClean(title), TitleCleaner.normalize(title), title);
+		}
+	}
+
+	@Test
+	void memoReturnsSameInstance() {
+		TitleCleaner cleaner = new TitleCleaner(16);
+		TitleCleaner.Title first = cleaner.clean("Hello World - Site");
+		assertEquals("Hello World", first.text);
+		assertEquals("hello world", first.lower);
+		assertSame(first, cleaner.clean("Hello World - Site"));
+		assertEquals(1, cleaner.memoHits());
+	}
+
+	@Test
+	void stopWordTrieMatchesSetSemantics() {
+		StopWordTrie trie = new StopWordTrie(List.of("的", "the", "a", "about"));
+		assertTrue(trie.matches("the"));
+		assertFalse(trie.matches("th"));
+		assertFalse(trie.matches("they"));
+		assertTrue(trie.matches("abc的", 3, 4));
+
+		assertTrue(trie.containsAny("遊戲的攻略"));
+		assertTrue(trie.containsAny("data"));
+		assertFalse(trie.containsAny("攻略"));
+		assertFalse(trie.containsAny("The", 0, 3));
+		assertTrue(trie.containsAny("xabout", 1, 6));
+		assertFalse(trie.containsAny("xyz", 0, 0));
+	}
+}
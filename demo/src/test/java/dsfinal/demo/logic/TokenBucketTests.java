@@ -0,0 +1,41 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTests {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	@Test
+	void burstThenRefillAtRate() {
+		TokenBucket bucket = new TokenBucket(2, 3);
+		long now = System.nanoTime();
+
+		// 一開始可以連續取得 capacity 個
+		for (int i = 0; i < 3; i++) assertEquals(0, bucket.reserve(0, now));
+		assertEquals(-1, bucket.reserve(0, now));
+
+		// 每秒 2 個，半秒後補回一個
+		assertEquals(0, bucket.reserve(0, now + SECOND / 2));
+		assertEquals(-1, bucket.reserve(0, now + SECOND / 2));
+	}
+
+	@Test
+	void waitingReservesInOrder() {
+		TokenBucket bucket = new TokenBucket(1, 1);
+		long now = System.nanoTime();
+		assertEquals(0, bucket.reserve(SECOND * 10, now));
+
+		long first = bucket.reserve(SECOND * 10, now);
+		long second = bucket.reserve(SECOND * 10, now);
+		assertTrue(Math.abs(first - SECOND) < 1000, "first=" + first);
+		assertTrue(Math.abs(second - 2 * SECOND) < 1000, "second=" + second);
+
+		// 等不到的請求不占用令牌
+		assertEquals(-1, bucket.reserve(SECOND, now));
+		assertTrue(Math.abs(bucket.reserve(SECOND * 10, now) - 3 * SECOND) < 1000);
+	}
+}
@@ -0,0 +1,36 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TopKTests {
+
+	@Test
+	void sameOrderAsStableSort() {
+		Random random = new Random(42);
+		for (int round = 0; round < 500; round++) {
+			int n = random.nextInt(40);
+			int k = 1 + random.nextInt(8);
+			long[] scores = new long[n];
+			for (int i = 0; i < n; i++) scores[i] = random.nextInt(5);
+
+			TopK top = new TopK(k);
+			for (int i = 0; i < n; i++) top.offer(scores[i], i);
+			int[] slots = top.sortedSlots();
+			int[] actual = new int[slots.length];
+			for (int i = 0; i < slots.length; i++) actual[i] = top.id(slots[i]);
+
+			List<Integer> ids = new ArrayList<>();
+			for (int i = 0; i < n; i++) ids.add(i);
+			ids.sort((a, b) -> Long.compare(scores[b], scores[a]));
+			int[] expected = ids.stream().limit(k).mapToInt(Integer::intValue).toArray();
+
+			assertArrayEquals(expected, actual);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package dsfinal.demo.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class TtlLruCacheTests {
+
+	@Test
+	void concurrentAsyncMissesShareOneLoad() {
+		TtlLruCache<String, String> cache = new TtlLruCache<>(10, 0);
+		CompletableFuture<String> loading = new CompletableFuture<>();
+		AtomicInteger loads = new AtomicInteger();
+
+		CompletableFuture<String> first = cache.getAsync("q", k -> {
+			loads.incrementAndGet();
+			return loading;
+		});
+		// 第一個還在計算中，第二個直接共用同一個 future
+		CompletableFuture<String> second = cache.getAsync("q", k -> {
+			loads.incrementAndGet();
+			return CompletableFuture.completedFuture("other");
+		});
+		assertSame(first, second);
+
+		loading.complete("value");
+		assertEquals("value", second.join());
+		assertEquals(1, loads.get());
+		assertEquals("value", cache.get("q"));
+	}
+
+	@Test
+	void failedAsyncLoadIsNotCached() {
+		TtlLruCache<String, String> cache = new TtlLruCache<>(10, 0);
+		CompletableFuture<String> failed = cache.getAsync("q",
+				k -> CompletableFuture.failedFuture(new IllegalStateException("down")));
+		assertTrue(failed.isCompletedExceptionally());
+		assertNull(cache.get("q"));
+
+		assertEquals("ok", cache.getAsync("q", k -> CompletableFuture.completedFuture("ok")).join());
+	}
+
+	@Test
+	void uncacheableResultIsSharedButNotStored() {
+		TtlLruCache<String, String> cache = new TtlLruCache<>(10, 0);
+		CompletableFuture<String> loading = new CompletableFuture<>();
+		CompletableFuture<String> first = cache.getAsync("q", k -> loading, v -> !v.isEmpty());
+		CompletableFuture<String> second = cache.getAsync("q", k -> CompletableFuture.completedFuture("other"), v -> !v.isEmpty());
+
+		// 空結果只交給這次共用的呼叫端，完成後不會留在快取中
+		loading.complete("");
+		assertEquals("", first.join());
+		assertEquals("", second.join());
+		assertNull(cache.get("q"));
+		assertEquals("ok", cache.getAsync("q", k -> CompletableFuture.completedFuture("ok"), v -> !v.isEmpty()).join());
+		assertEquals("ok", cache.get("q"));
+	}
+}
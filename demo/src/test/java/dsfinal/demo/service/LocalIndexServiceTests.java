@@ -0,0 +1,46 @@
+package dsfinal.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class LocalIndexServiceTests {
+
+	@Test
+	void reAddingSameUrlKeepsMemoryAndFileFlat(@TempDir File dir) {
+		String file = new File(dir, "local_index.ndjson").getPath();
+		LocalIndexService service = open(file);
+		String content = "荒野大鏢客 攻略 ".repeat(200);
+
+		// 內容沒變，只寫一次
+		for (int i = 0; i < 1000; i++) service.add("https://example.com/a", "攻略", content);
+		long unchangedSize = service.fileSize();
+		assertEquals(1, service.storedCount());
+
+		// 每次內容都不同，舊版本定期清掉
+		for (int i = 0; i < 1000; i++) service.add("https://example.com/a", "攻略", content + i);
+		assertEquals(1, service.size());
+		assertTrue(service.storedCount() < 128, "stored " + service.storedCount());
+		assertTrue(service.fileSize() < unchangedSize * 130, "file " + service.fileSize());
+		assertEquals(1, service.search("攻略", 10).size());
+		service.close();
+
+		// 重新啟動後只剩最新的版本
+		LocalIndexService restored = open(file);
+		assertEquals(1, restored.size());
+		assertEquals(content + 999, restored.search("攻略", 10).get(0).content);
+		restored.close();
+	}
+
+	private static LocalIndexService open(String file) {
+		LocalIndexService service = new LocalIndexService();
+		ReflectionTestUtils.setField(service, "dataFile", file);
+		service.init();
+		return service;
+	}
+}